@@ -0,0 +1,73 @@
+package autohome.benchmarks;
+
+import autohome.model.BlueprintRenderer;
+import autohome.model.FxPlanGraphics;
+import autohome.model.PackedPlan;
+import autohome.model.Plan;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.WritableImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full repaint of the blueprint into an offscreen canvas, including the
+ * snapshot that rasterizes it, from the object model and from a PackedPlan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DrawBenchmark {
+    private static final double CANVAS_SIZE = 2048;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Plan plan;
+    private PackedPlan packed;
+    private Canvas canvas;
+    private FxPlanGraphics graphics;
+    private WritableImage image;
+
+    @Setup
+    public void setUp() {
+        Fx.start();
+        plan = Plans.random(size, CANVAS_SIZE, CANVAS_SIZE, 42);
+        packed = PackedPlan.of(plan);
+        Fx.call(() -> {
+            canvas = new Canvas(CANVAS_SIZE, CANVAS_SIZE);
+            graphics = new FxPlanGraphics(canvas.getGraphicsContext2D());
+            image = new WritableImage((int) CANVAS_SIZE, (int) CANVAS_SIZE);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public WritableImage drawPlan() {
+        return Fx.call(() -> {
+            BlueprintRenderer.drawPlan(graphics, plan);
+            return canvas.snapshot(null, image);
+        });
+    }
+
+    @Benchmark
+    public WritableImage drawPackedPlan() {
+        return Fx.call(() -> {
+            packed.draw(graphics);
+            return canvas.snapshot(null, image);
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package autohome.benchmarks;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Starts the JavaFX toolkit once per benchmark JVM and runs work on the FX
+ * thread. On a machine without a display, run with Monocle's headless
+ * platform (-Dglass.platform=Monocle -Dmonocle.platform=Headless
+ * -Dprism.order=sw) and the Monocle jar on the class path.
+ */
+final class Fx {
+    private static boolean started;
+
+    private Fx() {
+    }
+
+    static synchronized void start() {
+        if (started) return;
+        Platform.setImplicitExit(false);
+        Platform.startup(() -> {
+        });
+        started = true;
+    }
+
+    /** Runs the task on the FX thread and waits for its result. */
+    static <T> T call(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package autohome.benchmarks;
+
+import autohome.model.BlueprintCanvas;
+import autohome.model.DraggableItem;
+import autohome.model.PackedPlan;
+import autohome.model.Plan;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mouse presses on the canvas. {@code canvasPress} fires real press events
+ * at the canvas, so it covers the whole handler: the hit-test, the bounds
+ * lookup and collecting the conflicts the pressed furniture already has.
+ * Presses are fired in batches on the FX thread to keep the thread hand-off
+ * out of the per-press time. The other two time the hit-test alone:
+ * {@link BlueprintCanvas#itemAt} over the spatial index, against a linear
+ * scan of a {@link PackedPlan}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HitTestBenchmark {
+    private static final double CANVAS_SIZE = 2048;
+    private static final int POINTS = 4096;
+    private static final int PRESS_BATCH = 256;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private BlueprintCanvas canvas;
+    private PackedPlan packed;
+    private double[] points;
+    private MouseEvent[] presses;
+    private int next;
+    private int nextPress;
+
+    @Setup
+    public void setUp() {
+        Fx.start();
+        Plan plan = Plans.random(size, CANVAS_SIZE, CANVAS_SIZE, 42);
+        canvas = Fx.call(() -> {
+            BlueprintCanvas result = new BlueprintCanvas(CANVAS_SIZE, CANVAS_SIZE, 0, 0);
+            result.loadPlan(plan);
+            return result;
+        });
+        packed = PackedPlan.of(plan);
+        points = Plans.points(POINTS, CANVAS_SIZE, CANVAS_SIZE, 7);
+        presses = new MouseEvent[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            double x = points[2 * i];
+            double y = points[2 * i + 1];
+            presses[i] = new MouseEvent(MouseEvent.MOUSE_PRESSED, x, y, x, y, MouseButton.PRIMARY, 1,
+                    false, false, false, false, true, false, false, false, false, true, null);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRESS_BATCH)
+    public BlueprintCanvas canvasPress() {
+        return Fx.call(() -> {
+            int i = nextPress;
+            for (int n = 0; n < PRESS_BATCH; n++) {
+                canvas.fireEvent(presses[i]);
+                i = (i + 1) % presses.length;
+            }
+            nextPress = i;
+            return canvas;
+        });
+    }
+
+    @Benchmark
+    public DraggableItem canvasItemAt() {
+        int i = next;
+        next = (i + 2) % points.length;
+        return canvas.itemAt(points[i], points[i + 1]);
+    }
+
+    @Benchmark
+    public int packedIndexAt() {
+        int i = next;
+        next = (i + 2) % points.length;
+        return packed.indexAt(points[i], points[i + 1]);
+    }
+}
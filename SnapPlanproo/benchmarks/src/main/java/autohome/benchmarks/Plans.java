@@ -0,0 +1,71 @@
+package autohome.benchmarks;
+
+import autohome.model.Furniture;
+import autohome.model.Plan;
+import autohome.model.Room;
+import autohome.model.Structure;
+import javafx.scene.paint.Color;
+
+import java.util.Random;
+
+/** Reproducible random plans for the benchmarks. */
+final class Plans {
+    private static final String[] ROOM_NAMES = {"Bedroom", "Bathroom", "Kitchen", "Living Room", "Garden"};
+    private static final String[] FURNITURE_TYPES = {"Bed", "Sofa", "Table", "Chair", "Wardrobe", "Desk"};
+    private static final Color[] COLORS = {
+            Color.LIGHTBLUE, Color.LIGHTGREEN, Color.LIGHTYELLOW, Color.LIGHTPINK, Color.SADDLEBROWN, Color.BEIGE
+    };
+
+    private Plans() {
+    }
+
+    /**
+     * A plan of {@code size} items over the given area: a house outline, then
+     * roughly 10% structures, 30% rooms and 60% furniture. Item sizes shrink as
+     * the count grows, so overlap stays about the same at every size.
+     */
+    static Plan random(int size, double width, double height, long seed) {
+        Random random = new Random(seed);
+        Plan plan = new Plan(width, height);
+
+        Structure outline = new Structure("House Outline", 10, 10, width - 20, height - 20, Color.TRANSPARENT);
+        outline.setStroke(Color.BLACK);
+        outline.setStrokeWidth(2);
+        plan.add(outline);
+
+        double typical = Math.max(2, Math.min(200, 2 * Math.sqrt(width * height / size)));
+        for (int i = 1; i < size; i++) {
+            double itemWidth = typical * (0.5 + random.nextDouble());
+            double itemHeight = typical * (0.5 + random.nextDouble());
+            double x = random.nextDouble() * (width - itemWidth);
+            double y = random.nextDouble() * (height - itemHeight);
+            Color color = COLORS[random.nextInt(COLORS.length)];
+
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                plan.add(new Structure("Wall", x, y, itemWidth, itemHeight, color));
+            } else if (kind <= 3) {
+                Room room = new Room(ROOM_NAMES[random.nextInt(ROOM_NAMES.length)], itemWidth, itemHeight, color);
+                room.setPosition(x, y);
+                plan.add(room);
+            } else {
+                Furniture item = new Furniture(FURNITURE_TYPES[random.nextInt(FURNITURE_TYPES.length)],
+                        itemWidth, itemHeight, color);
+                item.setPosition(x, y);
+                plan.add(item);
+            }
+        }
+        return plan;
+    }
+
+    /** Query points spread over the area, as x/y pairs. */
+    static double[] points(int count, double width, double height, long seed) {
+        Random random = new Random(seed);
+        double[] points = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            points[2 * i] = random.nextDouble() * width;
+            points[2 * i + 1] = random.nextDouble() * height;
+        }
+        return points;
+    }
+}
@@ -0,0 +1,64 @@
+package autohome.benchmarks;
+
+import autohome.ReportGenerator;
+import autohome.model.BlueprintRenderer;
+import autohome.model.FxPlanGraphics;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.WritableImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Encoding a rendered blueprint to PNG with {@link ReportGenerator#saveImage}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PngExportBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    @Param({"1024", "4096"})
+    public int imageSize;
+
+    private WritableImage image;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fx.start();
+        image = Fx.call(() -> {
+            Canvas canvas = new Canvas(imageSize, imageSize);
+            BlueprintRenderer.drawPlan(new FxPlanGraphics(canvas.getGraphicsContext2D()),
+                    Plans.random(size, imageSize, imageSize, 42));
+            return canvas.snapshot(null, null);
+        });
+        file = File.createTempFile("benchmark", ".png");
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public File saveImage() throws IOException {
+        ReportGenerator.saveImage(image, file);
+        return file;
+    }
+}
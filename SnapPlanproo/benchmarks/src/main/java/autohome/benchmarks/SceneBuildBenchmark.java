@@ -0,0 +1,59 @@
+package autohome.benchmarks;
+
+import autohome.ThreeDView;
+import autohome.model.Plan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the 3D scene graph for a whole plan. Every invocation gets a fresh
+ * {@link ThreeDView}, created outside the timed region, so each call builds
+ * every node from scratch; reusing one view would only time the diff of an
+ * unchanged plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SceneBuildBenchmark {
+    private static final double PLAN_SIZE = 2048;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Plan plan;
+    private ThreeDView view;
+
+    @Setup
+    public void setUp() {
+        Fx.start();
+        plan = Plans.random(size, PLAN_SIZE, PLAN_SIZE, 42);
+    }
+
+    @Setup(Level.Invocation)
+    public void newView() {
+        view = Fx.call(ThreeDView::new);
+    }
+
+    @Benchmark
+    public ThreeDView updateScene() {
+        return Fx.call(() -> {
+            view.updateScene(plan.getRooms(), plan.getFurniture(), plan.getStructures());
+            return view;
+        });
+    }
+}
@@ -0,0 +1,234 @@
+package autohome;
+
+import autohome.model.AwtPlanGraphics;
+import autohome.model.BlueprintRenderer;
+import autohome.model.Plan;
+import autohome.model.PlanReader;
+import autohome.model.Room;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless entry point: renders the blueprint and report of every saved plan
+ * in a directory to PNG, in parallel, using Java2D only (no JavaFX toolkit).
+ *
+ * Usage: {@code BatchRenderer <plan-dir> [output-dir] [--scale N] [--threads N]}
+ */
+public class BatchRenderer {
+    private static final int REPORT_WIDTH = 800;
+    private static final int REPORT_PADDING = 20;
+    private static final int REPORT_IMAGE_WIDTH = 550;
+    private static final Font TITLE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 24);
+    private static final Font SECTION_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 20);
+    private static final Font BODY_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 14);
+    private static final Color BOX_FILL = new Color(0xF8F8F8);
+    private static final Color BOX_BORDER = new Color(0xE0E0E0);
+    private static final Color FOOTER_COLOR = new Color(0x555555);
+
+    private final Path outputDir;
+    private final double scale;
+
+    public BatchRenderer(Path outputDir, double scale) {
+        this.outputDir = outputDir;
+        this.scale = scale;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        Path inputDir = null;
+        Path outputDir = null;
+        double scale = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--scale") && i + 1 < args.length) {
+                scale = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (inputDir == null) {
+                inputDir = Paths.get(args[i]);
+            } else {
+                outputDir = Paths.get(args[i]);
+            }
+        }
+        if (inputDir == null) {
+            System.err.println("Usage: BatchRenderer <plan-dir> [output-dir] [--scale N] [--threads N]");
+            System.exit(2);
+        }
+        if (outputDir == null) {
+            outputDir = inputDir;
+        }
+        Files.createDirectories(outputDir);
+
+        List<Path> plans = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir, "*.snplan")) {
+            for (Path file : files) {
+                plans.add(file);
+            }
+        }
+
+        BatchRenderer renderer = new BatchRenderer(outputDir, scale);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (Path plan : plans) {
+            results.add(workers.submit(() -> {
+                renderer.render(plan);
+                return null;
+            }));
+        }
+
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (ExecutionException e) {
+                failed++;
+                System.err.println("Failed to render " + plans.get(i).getFileName() + ": " + e.getCause());
+            }
+        }
+        workers.shutdown();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int rendered = plans.size() - failed;
+        System.out.printf("Rendered %d of %d plans in %.2f s (%.1f plans/s) on %d threads%n",
+                rendered, plans.size(), seconds, rendered / Math.max(seconds, 1e-9), threads);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /** Writes {@code <name>.png} and {@code <name>-report.png} for one plan file. */
+    public void render(Path planFile) throws IOException {
+        Plan plan;
+        try (InputStream in = Files.newInputStream(planFile)) {
+            plan = PlanReader.read(in);
+        }
+        String name = planFile.getFileName().toString().replaceFirst("\\.snplan$", "");
+
+        BufferedImage blueprint = renderBlueprint(plan, scale);
+        writePng(blueprint, outputDir.resolve(name + ".png"));
+        writePng(renderReport(plan, blueprint), outputDir.resolve(name + "-report.png"));
+    }
+
+    public static BufferedImage renderBlueprint(Plan plan, double scale) {
+        int width = Math.max(1, (int) Math.ceil(plan.getWidth() * scale));
+        int height = Math.max(1, (int) Math.ceil(plan.getHeight() * scale));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.scale(scale, scale);
+        BlueprintRenderer.drawPlan(new AwtPlanGraphics(g), plan);
+        g.dispose();
+        return image;
+    }
+
+    /** Lays out the same sections as {@link ReportGenerator#generateReport} into one image. */
+    private static BufferedImage renderReport(Plan plan, BufferedImage blueprint) {
+        int bedrooms = 0, bathrooms = 0, kitchens = 0;
+        boolean garden = false;
+        for (Room room : plan.getRooms()) {
+            if (room.getName().startsWith("Bedroom")) bedrooms++;
+            else if (room.getName().startsWith("Bathroom")) bathrooms++;
+            else if (room.getName().startsWith("Kitchen")) kitchens++;
+            else if (room.getName().startsWith("Garden")) garden = true;
+        }
+        List<String[]> specs = ReportGenerator.specRows(bedrooms, bathrooms, kitchens, garden, "Batch", "Headless");
+        String[] footer = ReportGenerator.FOOTER.split("\n");
+
+        int imageHeight = blueprint.getHeight() * REPORT_IMAGE_WIDTH / blueprint.getWidth();
+        int specsHeight = 10 + 30 + specs.size() * 20 + 10;
+        int blueprintHeight = 10 + 30 + imageHeight + 10;
+        int height = REPORT_PADDING + 30 + 20 + specsHeight + 20 + blueprintHeight + 20
+                + footer.length * 18 + REPORT_PADDING;
+
+        BufferedImage image = new BufferedImage(REPORT_WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, REPORT_WIDTH, height);
+
+        int x = REPORT_PADDING;
+        int boxWidth = REPORT_WIDTH - 2 * REPORT_PADDING;
+        int y = REPORT_PADDING;
+
+        g.setColor(Color.BLACK);
+        g.setFont(TITLE_FONT);
+        g.drawString(ReportGenerator.REPORT_TITLE, x, y + 26);
+        y += 30 + 20;
+
+        drawBox(g, x, y, boxWidth, specsHeight);
+        drawSectionTitle(g, ReportGenerator.SPECS_TITLE, x + 10, y + 10);
+        g.setFont(BODY_FONT);
+        int rowY = y + 10 + 30;
+        for (String[] row : specs) {
+            g.drawString(row[0], x + 10, rowY + 15);
+            g.drawString(row[1], x + 110, rowY + 15);
+            rowY += 20;
+        }
+        y += specsHeight + 20;
+
+        drawBox(g, x, y, boxWidth, blueprintHeight);
+        drawSectionTitle(g, ReportGenerator.BLUEPRINT_TITLE, x + 10, y + 10);
+        g.drawImage(blueprint, x + 10, y + 10 + 30, REPORT_IMAGE_WIDTH, imageHeight, null);
+        y += blueprintHeight + 20;
+
+        g.setColor(FOOTER_COLOR);
+        g.setFont(BODY_FONT);
+        for (String line : footer) {
+            g.drawString(line, x, y + 14);
+            y += 18;
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static void drawBox(Graphics2D g, int x, int y, int width, int height) {
+        g.setColor(BOX_FILL);
+        g.fillRoundRect(x, y, width, height, 10, 10);
+        g.setColor(BOX_BORDER);
+        g.setStroke(new BasicStroke(1));
+        g.drawRoundRect(x, y, width, height, 10, 10);
+    }
+
+    private static void drawSectionTitle(Graphics2D g, String title, int x, int y) {
+        g.setColor(Color.BLACK);
+        g.setFont(SECTION_FONT);
+        g.drawString(title, x, y + 22);
+        int width = g.getFontMetrics().stringWidth(title);
+        g.drawLine(x, y + 25, x + width, y + 25);
+    }
+
+    /** Streams the image's own pixel buffer into the encoder, without copying it. */
+    private static void writePng(BufferedImage image, Path file) throws IOException {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file));
+             PngEncoder encoder = new PngEncoder(out, image.getWidth(), image.getHeight())) {
+            encoder.writeRows(pixels, 0, image.getWidth(), image.getHeight());
+            encoder.finish();
+        }
+    }
+}
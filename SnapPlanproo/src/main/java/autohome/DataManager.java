@@ -1,15 +1,159 @@
 package autohome;
 
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
 public class DataManager {
-    public static boolean validateUser(String username, String password) {
-        return !username.isEmpty() && !password.isEmpty();
+    public static final String DEFAULT_ROLE = "Designer";
+    public static final String ADMIN_ROLE = "Admin";
+    private static final int ROLE_CACHE_SIZE = 256;
+    private static final UsageLog USAGE_LOG =
+            new UsageLog(Paths.get(System.getProperty("user.home"), ".snapplan", "logs"));
+    private static final ExecutorService AUTH_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "authentication");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Least recently used roles, evicted beyond ROLE_CACHE_SIZE
+    private static final Map<String, String> ROLE_CACHE = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > ROLE_CACHE_SIZE;
+        }
+    };
+    private static volatile UserStore userStore =
+            new FileUserStore(Paths.get(System.getProperty("user.home"), ".snapplan", "users"));
+
+    /** Replaces the local user file, e.g. with a directory-backed store. */
+    public static void setUserStore(UserStore store) {
+        userStore = store;
+        synchronized (ROLE_CACHE) {
+            ROLE_CACHE.clear();
+        }
+    }
+
+    /**
+     * Checks the credentials on a background thread and passes the user's role,
+     * or null if they were rejected, to {@code onResult} on the FX thread. Every
+     * login is rejected while no users exist. The password array is cleared
+     * once it has been hashed.
+     */
+    public static void authenticateAsync(String username, char[] password,
+                                         Consumer<String> onResult, Consumer<IOException> onFailure) {
+        AUTH_EXECUTOR.execute(() -> {
+            try {
+                String role = authenticate(username, password);
+                Platform.runLater(() -> onResult.accept(role));
+            } catch (IOException e) {
+                Platform.runLater(() -> onFailure.accept(e));
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        });
+    }
+
+    private static String authenticate(String username, char[] password) throws IOException {
+        String role = userStore.authenticate(username, password);
+        if (role != null) {
+            synchronized (ROLE_CACHE) {
+                ROLE_CACHE.put(username, role);
+            }
+        }
+        return role;
+    }
+
+    /** Passes true to {@code onResult} on the FX thread if no user accounts exist yet. */
+    public static void needsSetupAsync(Consumer<Boolean> onResult, Consumer<IOException> onFailure) {
+        AUTH_EXECUTOR.execute(() -> {
+            try {
+                boolean empty = userStore.isEmpty();
+                Platform.runLater(() -> onResult.accept(empty));
+            } catch (IOException e) {
+                Platform.runLater(() -> onFailure.accept(e));
+            }
+        });
+    }
+
+    /**
+     * Creates the first account, with the {@link #ADMIN_ROLE}, and passes true
+     * to {@code onResult} on the FX thread. Passes false instead if any account
+     * already exists, so this cannot be used to add users later on.
+     */
+    public static void createFirstAdminAsync(String username, char[] password,
+                                             Consumer<Boolean> onResult, Consumer<IOException> onFailure) {
+        AUTH_EXECUTOR.execute(() -> {
+            try {
+                UserStore store = userStore;
+                boolean created = store.isEmpty();
+                if (created) {
+                    store.addUser(username, password, ADMIN_ROLE);
+                    synchronized (ROLE_CACHE) {
+                        ROLE_CACHE.put(username, ADMIN_ROLE);
+                    }
+                }
+                Platform.runLater(() -> onResult.accept(created));
+            } catch (IOException e) {
+                Platform.runLater(() -> onFailure.accept(e));
+            } catch (IllegalArgumentException e) {
+                Platform.runLater(() -> onFailure.accept(new IOException(e.getMessage(), e)));
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        });
+    }
+
+    /**
+     * Creates or replaces an account on behalf of {@code admin}, and passes
+     * true to {@code onResult} on the FX thread, or false if {@code admin} is
+     * not an administrator.
+     */
+    public static void addUserAsync(String admin, String username, char[] password, String role,
+                                    Consumer<Boolean> onResult, Consumer<IOException> onFailure) {
+        AUTH_EXECUTOR.execute(() -> {
+            try {
+                UserStore store = userStore;
+                boolean allowed = ADMIN_ROLE.equals(roleOf(store, admin));
+                if (allowed) {
+                    store.addUser(username, password, role);
+                    synchronized (ROLE_CACHE) {
+                        ROLE_CACHE.put(username, role);
+                    }
+                }
+                Platform.runLater(() -> onResult.accept(allowed));
+            } catch (IOException e) {
+                Platform.runLater(() -> onFailure.accept(e));
+            } catch (IllegalArgumentException e) {
+                Platform.runLater(() -> onFailure.accept(new IOException(e.getMessage(), e)));
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        });
     }
 
-    public static String getUserRole(String username) {
-        return "Designer";
+    /** Returns the user's role from the cache, or from the store on a miss; null if the user does not exist. */
+    private static String roleOf(UserStore store, String username) throws IOException {
+        synchronized (ROLE_CACHE) {
+            String role = ROLE_CACHE.get(username);
+            if (role != null) return role;
+        }
+        String role = store.getRole(username);
+        if (role != null) {
+            synchronized (ROLE_CACHE) {
+                ROLE_CACHE.put(username, role);
+            }
+        }
+        return role;
     }
 
     public static void logUsage(String username, String role, String action) {
-        System.out.println("LOG: [" + username + " (" + role + ")] " + action);
+        USAGE_LOG.log(username, role, action);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package autohome;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User accounts in a local text file, one per line:
+ * {@code username<TAB>role<TAB>iterations<TAB>salt<TAB>hash}, with salt and
+ * hash in Base64. Passwords are stored as salted PBKDF2-HMAC-SHA256 hashes
+ * and compared in constant time. The file is read once, on first use.
+ */
+public class FileUserStore implements UserStore {
+    public static final int DEFAULT_ITERATIONS = 210_000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private static final class Credential {
+        final String role;
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        Credential(String role, int iterations, byte[] salt, byte[] hash) {
+            this.role = role;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+    private final Path file;
+    private final int iterations;
+    private final Map<String, Credential> users = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    // Hashed against for unknown users, so a miss costs as much as a wrong password
+    private final byte[] unknownUserSalt = new byte[SALT_BYTES];
+    private volatile boolean loaded;
+
+    public FileUserStore(Path file) {
+        this(file, DEFAULT_ITERATIONS);
+    }
+
+    public FileUserStore(Path file, int iterations) {
+        this.file = file;
+        this.iterations = iterations;
+        random.nextBytes(unknownUserSalt);
+    }
+
+    @Override
+    public String authenticate(String username, char[] password) throws IOException {
+        load();
+        Credential credential = users.get(username);
+        if (credential == null) {
+            hash(password, unknownUserSalt, iterations);
+            return null;
+        }
+        byte[] actual = hash(password, credential.salt, credential.iterations);
+        return MessageDigest.isEqual(actual, credential.hash) ? credential.role : null;
+    }
+
+    @Override
+    public String getRole(String username) throws IOException {
+        load();
+        Credential credential = users.get(username);
+        return credential != null ? credential.role : null;
+    }
+
+    @Override
+    public synchronized void addUser(String username, char[] password, String role) throws IOException {
+        if (username.isEmpty() || username.matches(".*[\\t\\r\\n].*") || role.matches(".*[\\t\\r\\n].*")) {
+            throw new IllegalArgumentException("Invalid username or role");
+        }
+        load();
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        users.put(username, new Credential(role, iterations, salt, hash(password, salt, iterations)));
+        save();
+    }
+
+    @Override
+    public boolean isEmpty() throws IOException {
+        load();
+        return users.isEmpty();
+    }
+
+    private synchronized void load() throws IOException {
+        if (loaded) return;
+        if (Files.exists(file)) {
+            Base64.Decoder decoder = Base64.getDecoder();
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                int number = 0;
+                while ((line = in.readLine()) != null) {
+                    number++;
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    String[] fields = line.split("\t");
+                    if (fields.length != 5) {
+                        throw new IOException("Corrupt user file " + file + " at line " + number);
+                    }
+                    try {
+                        users.put(fields[0], new Credential(fields[1], Integer.parseInt(fields[2]),
+                                decoder.decode(fields[3]), decoder.decode(fields[4])));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Corrupt user file " + file + " at line " + number, e);
+                    }
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    /** Rewrites the whole file through a temporary file, so a crash never leaves it half written. */
+    private void save() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "users", ".tmp");
+        try {
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; the file keeps the default permissions
+        }
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write("# SnapPlan users: name, role, PBKDF2 iterations, salt, hash");
+            out.newLine();
+            for (Map.Entry<String, Credential> entry : users.entrySet()) {
+                Credential credential = entry.getValue();
+                out.write(entry.getKey() + "\t" + credential.role + "\t" + credential.iterations + "\t" +
+                        encoder.encodeToString(credential.salt) + "\t" + encoder.encodeToString(credential.hash));
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static byte[] hash(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
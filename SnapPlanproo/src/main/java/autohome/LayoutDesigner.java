@@ -1,22 +1,42 @@
 package autohome;
 
 import autohome.model.*;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import javafx.scene.paint.Color;
 import javafx.scene.control.ScrollPane;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 public class LayoutDesigner {
+    // The house outline is drawn 10px inside the canvas with a 2px stroke
+    private static final double OUTLINE_INSET = 11;
+    private static final int SEARCH_RESULTS = 5;
+    private static final long SEARCH_BUDGET_MILLIS = 5000;
+
     private final BlueprintCanvas blueprintCanvas;
     private final List<Furniture> availableFurniture = new ArrayList<>();
     private final int houseWidth;
@@ -31,12 +51,26 @@ public class LayoutDesigner {
     private ThreeDView threeDView;
     private boolean show3DView = false;
     private VBox blueprintArea;
+    private EditJournal journal;
+    private final ProgressBar exportProgress = new ProgressBar();
+    private final MetricsOverlay metricsOverlay = new MetricsOverlay();
+    private final CheckMenuItem showMetrics = new CheckMenuItem("Show Overlay (F3)");
+    private final Label pickedRoomLabel = new Label("Click a room to see its size");
+    private final StackPane threeDArea;
 
     public LayoutDesigner(int houseWidth, int houseHeight) {
         this.houseWidth = houseWidth;
         this.houseHeight = houseHeight;
         this.blueprintCanvas = new BlueprintCanvas(600, 400, houseWidth, houseHeight);
         this.threeDView = new ThreeDView();
+        threeDView.setOnFurnitureMoved((item, position) ->
+                blueprintCanvas.moveItem(item, position.getX(), position.getY()));
+        threeDView.setOnRoomPicked(room -> pickedRoomLabel.setText(String.format("%s: %.0f x %.0f",
+                room.getName(), room.getWidth(), room.getHeight())));
+        pickedRoomLabel.setStyle("-fx-text-fill: white; -fx-background-color: rgba(0, 0, 0, 0.6); -fx-padding: 4px 8px;");
+        StackPane.setAlignment(pickedRoomLabel, Pos.BOTTOM_LEFT);
+        StackPane.setMargin(pickedRoomLabel, new Insets(10));
+        this.threeDArea = new StackPane(threeDView.getContainer(), pickedRoomLabel);
         initializeFurniture();
     }
 
@@ -66,7 +100,7 @@ public class LayoutDesigner {
 
         scrollPane.setContent(rightPanel);
 
-        blueprintArea = new VBox(15, new Label("House Blueprint"), blueprintCanvas);
+        blueprintArea = new VBox(15, new Label("House Blueprint"), createSnapBar(), blueprintCanvas);
         blueprintArea.setAlignment(Pos.CENTER);
         blueprintArea.setPadding(new Insets(15));
         blueprintArea.setStyle("-fx-background-color: white; -fx-border-color: #a0a0a0; -fx-border-width: 1;");
@@ -77,10 +111,90 @@ public class LayoutDesigner {
         root.setCenter(blueprintArea);
         root.setBottom(buttonBox);
 
-        Scene scene = new Scene(root, 1100, 750);
+        Scene scene = new Scene(new StackPane(root, metricsOverlay.getNode()), 1100, 750);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN),
+                blueprintCanvas::undo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN),
+                blueprintCanvas::redo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                KeyCombination.SHIFT_DOWN), blueprintCanvas::redo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.F3),
+                () -> showMetrics.setSelected(!showMetrics.isSelected()));
         stage.setTitle("House Layout Designer");
         stage.setScene(scene);
         stage.show();
+
+        startJournal(stage, userName, userRole);
+    }
+
+    /**
+     * Offers to restore edits left by a session that did not exit cleanly, then
+     * journals every further edit and checkpoints it periodically.
+     */
+    private void startJournal(Stage stage, String userName, String userRole) {
+        Path directory = Paths.get(System.getProperty("user.home"), ".snapplan", "autosave",
+                userName.replaceAll("[^A-Za-z0-9._-]", "_"));
+        try {
+            Plan recovered = EditJournal.recover(directory);
+            if (recovered != null) {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                        "Your last session did not close properly. Recover the unsaved plan?",
+                        ButtonType.YES, ButtonType.NO);
+                alert.setHeaderText(null);
+                if (alert.showAndWait().orElse(ButtonType.NO) == ButtonType.YES) {
+                    blueprintCanvas.loadPlan(recovered);
+                    blueprintCanvas.getHistory().clear();
+                    DataManager.logUsage(userName, userRole, "Recovered unsaved plan");
+                }
+            }
+
+            journal = new EditJournal(directory, blueprintCanvas.toPlan());
+            journal.setOnFailure(e -> Platform.runLater(() -> new Alert(Alert.AlertType.ERROR,
+                    "Autosave has stopped, so unsaved edits can no longer be recovered after a crash: "
+                            + e.getMessage()).show()));
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.ERROR, "Autosave is unavailable: " + e.getMessage()).show();
+            return;
+        }
+        blueprintCanvas.addEditListener(journal);
+
+        Timeline checkpoints = new Timeline(new KeyFrame(Duration.seconds(30), e -> {
+            if (journal.hasChangesSinceCheckpoint()) {
+                journal.checkpoint(blueprintCanvas.toPlan());
+            }
+        }));
+        checkpoints.setCycleCount(Timeline.INDEFINITE);
+        checkpoints.play();
+
+        stage.setOnCloseRequest(e -> {
+            checkpoints.stop();
+            try {
+                journal.discard();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    private HBox createSnapBar() {
+        SnapEngine snapEngine = blueprintCanvas.getSnapEngine();
+
+        ChoiceBox<String> gridChoice = new ChoiceBox<>();
+        gridChoice.getItems().addAll("Off", "5 px", "10 px", "20 px", "50 px");
+        gridChoice.setValue("Off");
+        gridChoice.valueProperty().addListener((obs, oldValue, value) ->
+                snapEngine.setGridSize(value.equals("Off") ? 0 : Double.parseDouble(value.replace(" px", ""))));
+
+        CheckBox snapToEdges = new CheckBox("Snap to edges");
+        snapToEdges.setSelected(snapEngine.isSnapToEdges());
+        snapToEdges.selectedProperty().addListener((obs, oldValue, selected) -> snapEngine.setSnapToEdges(selected));
+
+        Label hint = new Label("Hold Alt while dragging to place freely");
+        hint.setStyle("-fx-text-fill: #777;");
+
+        HBox snapBar = new HBox(10, new Label("Grid:"), gridChoice, snapToEdges, hint);
+        snapBar.setAlignment(Pos.CENTER);
+        return snapBar;
     }
 
     private void initializeFurniture() {
@@ -102,27 +216,153 @@ public class LayoutDesigner {
         title.setStyle("-fx-font-weight: bold; -fx-font-size: 16px;");
         palette.getChildren().add(title);
 
-        for (int i = 1; i <= bedroomCount; i++) {
-            Button btn = createCompactButton("Bedroom " + i, Color.LIGHTBLUE, 100, 80);
+        Button autoLayoutBtn = new Button("Auto Layout");
+        autoLayoutBtn.setMaxWidth(Double.MAX_VALUE);
+        autoLayoutBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px; -fx-font-weight: bold;");
+        autoLayoutBtn.setTooltip(new Tooltip("Arrange all requested rooms inside the house outline"));
+        autoLayoutBtn.setOnAction(e -> autoLayout());
+        palette.getChildren().add(autoLayoutBtn);
+
+        Button findLayoutsBtn = new Button("Find Layouts...");
+        findLayoutsBtn.setMaxWidth(Double.MAX_VALUE);
+        findLayoutsBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px; -fx-font-weight: bold;");
+        findLayoutsBtn.setTooltip(new Tooltip("Compare many arrangements and pick the best"));
+        findLayoutsBtn.setOnAction(e -> showLayoutSearch());
+        palette.getChildren().add(findLayoutsBtn);
+
+        for (RoomSpec spec : requestedRooms()) {
+            Button btn = createCompactButton(spec.getName(), spec.getColor(), spec.getWidth(), spec.getHeight());
             palette.getChildren().add(btn);
         }
 
+        return palette;
+    }
+
+    /** The rooms the configured house should contain. */
+    private List<RoomSpec> requestedRooms() {
+        List<RoomSpec> specs = new ArrayList<>();
+        for (int i = 1; i <= bedroomCount; i++) {
+            specs.add(new RoomSpec("Bedroom " + i, 100, 80, Color.LIGHTBLUE));
+        }
         for (int i = 1; i <= bathroomCount; i++) {
-            Button btn = createCompactButton("Bathroom " + i, Color.LIGHTCORAL, 80, 60);
-            palette.getChildren().add(btn);
+            specs.add(new RoomSpec("Bathroom " + i, 80, 60, Color.LIGHTCORAL));
         }
-
         for (int i = 1; i <= kitchenCount; i++) {
-            Button btn = createCompactButton("Kitchen " + i, Color.LIGHTGREEN, 120, 80);
-            palette.getChildren().add(btn);
+            specs.add(new RoomSpec("Kitchen " + i, 120, 80, Color.LIGHTGREEN));
         }
-
         if (hasGarden) {
-            Button btn = createCompactButton("Garden", Color.PALEGREEN, houseWidth * 20, 40);
-            palette.getChildren().add(btn);
+            specs.add(new RoomSpec("Garden", houseWidth * 20, 40, Color.PALEGREEN));
         }
+        return specs;
+    }
 
-        return palette;
+    /** Replaces the rooms on the blueprint with the requested rooms packed inside the outline. */
+    private void autoLayout() {
+        RoomPacker packer = new RoomPacker(OUTLINE_INSET, OUTLINE_INSET,
+                blueprintCanvas.getWidth() - 2 * OUTLINE_INSET, blueprintCanvas.getHeight() - 2 * OUTLINE_INSET);
+        RoomPacker.Result result = packer.pack(requestedRooms());
+        blueprintCanvas.loadPlan(planWithRooms(result.getPlaced()));
+
+        if (!result.getUnplaced().isEmpty()) {
+            StringBuilder names = new StringBuilder();
+            for (RoomSpec spec : result.getUnplaced()) {
+                names.append("\n").append(spec.getName());
+            }
+            new Alert(Alert.AlertType.WARNING, "These rooms did not fit inside the house:" + names).show();
+        }
+    }
+
+    /** The current blueprint with its rooms replaced by the given ones. */
+    private Plan planWithRooms(List<Room> rooms) {
+        Plan plan = blueprintCanvas.toPlan();
+        plan.getRooms().clear();
+        plan.getRooms().addAll(rooms);
+        return plan;
+    }
+
+    /**
+     * Runs a parallel layout search and lists the best arrangements as they
+     * are found, with a preview of the selected one.
+     */
+    private void showLayoutSearch() {
+        double width = blueprintCanvas.getWidth();
+        double height = blueprintCanvas.getHeight();
+        LayoutSearch search = new LayoutSearch(OUTLINE_INSET, OUTLINE_INSET,
+                width - 2 * OUTLINE_INSET, height - 2 * OUTLINE_INSET, requestedRooms(), SEARCH_RESULTS);
+
+        ListView<LayoutSearch.Candidate> results = new ListView<>();
+        results.setPrefHeight(140);
+        results.setCellFactory(list -> new ListCell<LayoutSearch.Candidate>() {
+            @Override
+            protected void updateItem(LayoutSearch.Candidate candidate, boolean empty) {
+                super.updateItem(candidate, empty);
+                setText(empty || candidate == null ? null : String.format(
+                        "Score %.3f  area %.0f%%  adjacency %.2f  corridor %.2f%s",
+                        candidate.getScore(), candidate.getAreaUse() * 100, candidate.getAdjacency(),
+                        candidate.getCorridor(),
+                        candidate.getUnplaced() > 0 ? "  (" + candidate.getUnplaced() + " rooms left out)" : ""));
+            }
+        });
+
+        Canvas preview = new Canvas(width / 2, height / 2);
+        results.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, candidate) -> {
+            GraphicsContext gc = preview.getGraphicsContext2D();
+            gc.clearRect(0, 0, preview.getWidth(), preview.getHeight());
+            if (candidate != null) {
+                gc.save();
+                gc.scale(0.5, 0.5);
+                BlueprintRenderer.drawPlan(new FxPlanGraphics(gc), planWithRooms(candidate.getRooms()));
+                gc.restore();
+            }
+        });
+
+        Label status = new Label("Searching...");
+        Button stopBtn = new Button("Stop");
+        Button applyBtn = new Button("Apply");
+        applyBtn.disableProperty().bind(results.getSelectionModel().selectedItemProperty().isNull());
+
+        Stage dialog = new Stage();
+        dialog.setTitle("Find Layouts");
+        dialog.initOwner(blueprintCanvas.getScene().getWindow());
+
+        Timeline progress = new Timeline(new KeyFrame(Duration.millis(200), e ->
+                status.setText("Searching... " + search.getEvaluated() + " layouts evaluated")));
+        progress.setCycleCount(Timeline.INDEFINITE);
+
+        stopBtn.setOnAction(e -> search.cancel());
+        applyBtn.setOnAction(e -> {
+            blueprintCanvas.loadPlan(planWithRooms(results.getSelectionModel().getSelectedItem().getRooms()));
+            dialog.close();
+        });
+        dialog.setOnHidden(e -> {
+            search.cancel();
+            progress.stop();
+        });
+
+        HBox buttons = new HBox(10, stopBtn, applyBtn);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+        VBox content = new VBox(10, status, results, preview, buttons);
+        content.setPadding(new Insets(15));
+        dialog.setScene(new Scene(content));
+        dialog.show();
+
+        progress.play();
+        search.start(SEARCH_BUDGET_MILLIS,
+                best -> Platform.runLater(() -> {
+                    LayoutSearch.Candidate selected = results.getSelectionModel().getSelectedItem();
+                    results.getItems().setAll(best);
+                    if (selected == null || !best.contains(selected)) {
+                        results.getSelectionModel().selectFirst();
+                    } else {
+                        results.getSelectionModel().select(selected);
+                    }
+                }),
+                () -> Platform.runLater(() -> {
+                    progress.stop();
+                    stopBtn.setDisable(true);
+                    status.setText((search.isCancelled() ? "Stopped after " : "Finished after ")
+                            + search.getEvaluated() + " layouts");
+                }));
     }
 
     private Button createCompactButton(String text, Color color, double width, double height) {
@@ -179,6 +419,14 @@ public class LayoutDesigner {
             palette.getChildren().add(btn);
         }
 
+        CheckBox blockCollisions = new CheckBox("Block overlaps");
+        blockCollisions.setStyle("-fx-font-size: 14px;");
+        blockCollisions.setTooltip(new Tooltip("Stop furniture from overlapping or leaving its room while dragging"));
+        blockCollisions.setSelected(blueprintCanvas.isBlockCollisions());
+        blockCollisions.selectedProperty().addListener((obs, oldValue, selected) ->
+                blueprintCanvas.setBlockCollisions(selected));
+        palette.getChildren().add(blockCollisions);
+
         return palette;
     }
 
@@ -293,12 +541,48 @@ public class LayoutDesigner {
         Button saveBtn = new Button("Save Blueprint");
         saveBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
 
+        Button savePlanBtn = new Button("Save Plan");
+        savePlanBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
+
+        Button openPlanBtn = new Button("Open Plan");
+        openPlanBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
+
+        MenuItem saveToWorkspace = new MenuItem("Save to Workspace...");
+        MenuItem openFromWorkspace = new MenuItem("Open from Workspace...");
+        MenuButton workspaceBtn = new MenuButton("Workspace", null, saveToWorkspace, openFromWorkspace);
+        workspaceBtn.setStyle("-fx-font-size: 14px; -fx-padding: 4px 8px;");
+
+        MenuItem dumpMetrics = new MenuItem("Dump to File");
+        MenuButton metricsBtn = new MenuButton("Metrics", null, showMetrics, dumpMetrics);
+        metricsBtn.setStyle("-fx-font-size: 14px; -fx-padding: 4px 8px;");
+        showMetrics.selectedProperty().addListener((obs, oldValue, newValue) -> metricsOverlay.setShowing(newValue));
+        dumpMetrics.setOnAction(e -> dumpMetrics(userName, userRole));
+
+        Button exportBtn = new Button("Export Hi-Res");
+        exportBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
+
         Button reportBtn = new Button("Generate Report");
         reportBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
 
         Button clearBtn = new Button("Clear All");
         clearBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
 
+        Button undoBtn = new Button("Undo");
+        undoBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
+        undoBtn.setOnAction(e -> blueprintCanvas.undo());
+
+        Button redoBtn = new Button("Redo");
+        redoBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
+        redoBtn.setOnAction(e -> blueprintCanvas.redo());
+
+        EditHistory history = blueprintCanvas.getHistory();
+        Runnable updateUndoButtons = () -> {
+            undoBtn.setDisable(!history.canUndo());
+            redoBtn.setDisable(!history.canRedo());
+        };
+        history.addChangeListener(updateUndoButtons);
+        updateUndoButtons.run();
+
         Button toggle3DBtn = new Button("Show 3D View");
         toggle3DBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
         toggle3DBtn.setOnAction(e -> {
@@ -309,7 +593,7 @@ public class LayoutDesigner {
                         blueprintCanvas.getFurniture(),
                         blueprintCanvas.getStructures()
                 );
-                root.setCenter(threeDView.getContainer());
+                root.setCenter(threeDArea);
                 toggle3DBtn.setText("Show 2D View");
             } else {
                 root.setCenter(blueprintArea);
@@ -318,21 +602,38 @@ public class LayoutDesigner {
         });
 
         saveBtn.setOnAction(e -> saveBlueprint(stage, userName, userRole));
+        exportBtn.setOnAction(e -> exportHighResolution(stage, userName, userRole));
+        savePlanBtn.setOnAction(e -> savePlan(stage, userName, userRole));
+        openPlanBtn.setOnAction(e -> openPlan(stage, userName, userRole));
+        saveToWorkspace.setOnAction(e -> saveToWorkspace(stage, userName, userRole));
+        openFromWorkspace.setOnAction(e -> openFromWorkspace(stage, userName, userRole));
         reportBtn.setOnAction(e -> {
             DataManager.logUsage(userName, userRole, "Generated report");
             WritableImage snapshot = blueprintCanvas.snapshot();
-            String blueprintPath = ReportGenerator.saveBlueprintImage(stage, snapshot);
-            if (blueprintPath != null) {
-                ReportGenerator.generateReport(stage, bedroomCount, bathroomCount, kitchenCount,
-                        hasGarden, blueprintPath, userName, userRole);
-            }
+            ReportGenerator.saveBlueprintImageAsync(stage, snapshot, this::showExportProgress, blueprintPath -> {
+                hideExportProgress();
+                if (blueprintPath != null) {
+                    ReportGenerator.generateReport(stage, bedroomCount, bathroomCount, kitchenCount,
+                            hasGarden, blueprintPath, userName, userRole);
+                }
+            });
         });
         clearBtn.setOnAction(e -> {
             blueprintCanvas.clearAll();
             DataManager.logUsage(userName, userRole, "Cleared blueprint");
         });
 
-        HBox buttonBox = new HBox(15, saveBtn, reportBtn, clearBtn, toggle3DBtn);
+        exportProgress.setPrefWidth(120);
+        hideExportProgress();
+
+        HBox buttonBox = new HBox(15, undoBtn, redoBtn, saveBtn, exportBtn, savePlanBtn, openPlanBtn, workspaceBtn, reportBtn,
+                clearBtn, toggle3DBtn, metricsBtn, exportProgress);
+        if (DataManager.ADMIN_ROLE.equals(userRole)) {
+            Button addUserBtn = new Button("Add User");
+            addUserBtn.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
+            addUserBtn.setOnAction(e -> addUser(userName, userRole));
+            buttonBox.getChildren().add(buttonBox.getChildren().size() - 1, addUserBtn);
+        }
         buttonBox.setAlignment(Pos.CENTER);
         buttonBox.setPadding(new Insets(15));
         buttonBox.setStyle("-fx-background-color: #e0e0e0;");
@@ -340,6 +641,57 @@ public class LayoutDesigner {
         return buttonBox;
     }
 
+    /** Lets an administrator create an account or reset one's password and role. */
+    private void addUser(String userName, String userRole) {
+        TextField usernameField = new TextField();
+        PasswordField passwordField = new PasswordField();
+        ChoiceBox<String> roleBox = new ChoiceBox<>();
+        roleBox.getItems().addAll(DataManager.DEFAULT_ROLE, DataManager.ADMIN_ROLE);
+        roleBox.setValue(DataManager.DEFAULT_ROLE);
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Username:"), usernameField);
+        grid.addRow(1, new Label("Password:"), passwordField);
+        grid.addRow(2, new Label("Role:"), roleBox);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Add User");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        String username = usernameField.getText().trim();
+        String password = passwordField.getText().trim();
+        if (username.isEmpty() || password.isEmpty()) {
+            new Alert(Alert.AlertType.ERROR, "Please enter both username and password").show();
+            return;
+        }
+
+        String role = roleBox.getValue();
+        DataManager.addUserAsync(userName, username, password.toCharArray(), role, added -> {
+            if (added) {
+                DataManager.logUsage(userName, userRole, "Added user " + username + " as " + role);
+                new Alert(Alert.AlertType.INFORMATION, "User " + username + " saved.").show();
+            } else {
+                new Alert(Alert.AlertType.ERROR, "Only administrators can add users.").show();
+            }
+        }, e -> new Alert(Alert.AlertType.ERROR, "Error adding user: " + e.getMessage()).show());
+    }
+
+    /** Appends the current metrics to ~/.snapplan/metrics/metrics.jsonl. */
+    private void dumpMetrics(String userName, String userRole) {
+        Path file = Paths.get(System.getProperty("user.home"), ".snapplan", "metrics", "metrics.jsonl");
+        try {
+            Metrics.dump(file);
+            DataManager.logUsage(userName, userRole, "Dumped metrics");
+            new Alert(Alert.AlertType.INFORMATION, "Metrics written to " + file).show();
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.ERROR, "Error writing metrics: " + e.getMessage()).show();
+        }
+    }
+
     private String toHex(Color color) {
         return String.format("#%02X%02X%02X",
                 (int) (color.getRed() * 255),
@@ -353,13 +705,137 @@ public class LayoutDesigner {
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG Files", "*.png"));
         File file = fileChooser.showSaveDialog(stage);
         if (file != null) {
-            try {
-                ReportGenerator.saveImage(blueprintCanvas.snapshot(), file);
-                DataManager.logUsage(userName, userRole, "Saved blueprint to " + file.getName());
-                new Alert(Alert.AlertType.INFORMATION, "Blueprint saved successfully!").show();
+            showExportProgress(0);
+            ReportGenerator.saveImageAsync(blueprintCanvas.snapshot(), file, this::showExportProgress,
+                    () -> {
+                        hideExportProgress();
+                        DataManager.logUsage(userName, userRole, "Saved blueprint to " + file.getName());
+                        new Alert(Alert.AlertType.INFORMATION, "Blueprint saved successfully!").show();
+                    },
+                    e -> {
+                        hideExportProgress();
+                        new Alert(Alert.AlertType.ERROR, "Error saving blueprint: " + e.getMessage()).show();
+                    });
+        }
+    }
+
+    private void exportHighResolution(Stage stage, String userName, String userRole) {
+        ChoiceDialog<Integer> scaleDialog = new ChoiceDialog<>(4, 2, 4, 8, 16);
+        scaleDialog.setTitle("Export Hi-Res");
+        scaleDialog.setHeaderText(null);
+        scaleDialog.setContentText("Scale (x):");
+        Integer scale = scaleDialog.showAndWait().orElse(null);
+        if (scale == null) return;
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Blueprint");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG Files", "*.png"));
+        File file = fileChooser.showSaveDialog(stage);
+        if (file == null) return;
+
+        showExportProgress(0);
+        ReportGenerator.exportPlanAsync(blueprintCanvas.toPlan().copy(), scale, file, this::showExportProgress,
+                () -> {
+                    hideExportProgress();
+                    DataManager.logUsage(userName, userRole, "Exported blueprint at " + scale + "x to " + file.getName());
+                    new Alert(Alert.AlertType.INFORMATION, "Blueprint exported successfully!").show();
+                },
+                e -> {
+                    hideExportProgress();
+                    new Alert(Alert.AlertType.ERROR, "Error exporting blueprint: " + e.getMessage()).show();
+                });
+    }
+
+    private void showExportProgress(double progress) {
+        exportProgress.setProgress(progress);
+        exportProgress.setVisible(true);
+    }
+
+    private void hideExportProgress() {
+        exportProgress.setVisible(false);
+    }
+
+    private void savePlan(Stage stage, String userName, String userRole) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Plan");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("SnapPlan Files", "*.snplan"));
+        File file = fileChooser.showSaveDialog(stage);
+        if (file != null) {
+            try (OutputStream out = new FileOutputStream(file)) {
+                PlanWriter.write(out, blueprintCanvas.toPlan());
+                DataManager.logUsage(userName, userRole, "Saved plan to " + file.getName());
+                new Alert(Alert.AlertType.INFORMATION, "Plan saved successfully!").show();
+            } catch (IOException e) {
+                new Alert(Alert.AlertType.ERROR, "Error saving plan: " + e.getMessage()).show();
+            }
+        }
+    }
+
+    private void openPlan(Stage stage, String userName, String userRole) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open Plan");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("SnapPlan Files", "*.snplan"));
+        File file = fileChooser.showOpenDialog(stage);
+        if (file != null) {
+            try (InputStream in = new FileInputStream(file)) {
+                blueprintCanvas.loadPlan(PlanReader.read(in));
+                DataManager.logUsage(userName, userRole, "Opened plan " + file.getName());
             } catch (IOException e) {
-                new Alert(Alert.AlertType.ERROR, "Error saving blueprint: " + e.getMessage()).show();
+                new Alert(Alert.AlertType.ERROR, "Error opening plan: " + e.getMessage()).show();
             }
         }
     }
+
+    private File chooseWorkspace(Stage stage, boolean create) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Select Workspace");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("SnapPlan Workspaces", "*.snws"));
+        return create ? fileChooser.showSaveDialog(stage) : fileChooser.showOpenDialog(stage);
+    }
+
+    private void saveToWorkspace(Stage stage, String userName, String userRole) {
+        File file = chooseWorkspace(stage, true);
+        if (file == null) return;
+
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Save to Workspace");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Plan name:");
+        String planId = dialog.showAndWait().map(String::trim).orElse("");
+        if (planId.isEmpty()) return;
+
+        try (WorkspaceStore store = WorkspaceStore.open(file.toPath())) {
+            store.savePlan(planId, blueprintCanvas.toPlan());
+            DataManager.logUsage(userName, userRole, "Saved plan " + planId + " to " + file.getName());
+            new Alert(Alert.AlertType.INFORMATION, "Plan saved to workspace!").show();
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.ERROR, "Error saving to workspace: " + e.getMessage()).show();
+        }
+    }
+
+    private void openFromWorkspace(Stage stage, String userName, String userRole) {
+        File file = chooseWorkspace(stage, false);
+        if (file == null) return;
+
+        try (WorkspaceStore store = WorkspaceStore.open(file.toPath())) {
+            if (store.getPlanIds().isEmpty()) {
+                new Alert(Alert.AlertType.INFORMATION, "The workspace has no plans.").show();
+                return;
+            }
+
+            ChoiceDialog<String> dialog = new ChoiceDialog<>(
+                    store.getPlanIds().iterator().next(), store.getPlanIds());
+            dialog.setTitle("Open from Workspace");
+            dialog.setHeaderText(null);
+            dialog.setContentText("Plan:");
+            String planId = dialog.showAndWait().orElse(null);
+            if (planId == null) return;
+
+            // The whole plan is loaded, so saving it back never drops the items off screen
+            blueprintCanvas.loadPlan(store.openPlan(planId).toPlan());
+            DataManager.logUsage(userName, userRole, "Opened plan " + planId + " from " + file.getName());
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.ERROR, "Error opening workspace: " + e.getMessage()).show();
+        }
+    }
 }
\ No newline at end of file
@@ -9,10 +9,14 @@ import javafx.stage.Stage;
 public class LoginScreen {
     private TextField usernameField;
     private PasswordField passwordField;
+    private PasswordField confirmField;
+    private Label titleLabel;
     private Label errorLabel;
+    private Button loginButton;
+    private boolean setupMode;
 
     public void start(Stage primaryStage) {
-        Label titleLabel = new Label("AutoHome Login");
+        titleLabel = new Label("AutoHome Login");
         titleLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold;");
 
         usernameField = new TextField();
@@ -23,17 +27,26 @@ public class LoginScreen {
         passwordField.setPromptText("Password");
         passwordField.setStyle("-fx-font-size: 14px; -fx-padding: 8px;");
 
+        confirmField = new PasswordField();
+        confirmField.setPromptText("Confirm password");
+        confirmField.setStyle("-fx-font-size: 14px; -fx-padding: 8px;");
+        confirmField.setVisible(false);
+        confirmField.setManaged(false);
+
         errorLabel = new Label();
         errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");
 
-        Button loginButton = new Button("Login");
+        loginButton = new Button("Login");
         loginButton.setStyle("-fx-font-size: 14px; -fx-padding: 8px 16px;");
-        loginButton.setOnAction(e -> handleLogin(primaryStage));
+        loginButton.setOnAction(e -> handleSubmit(primaryStage));
+        passwordField.setOnAction(e -> handleSubmit(primaryStage));
+        confirmField.setOnAction(e -> handleSubmit(primaryStage));
 
         VBox root = new VBox(15,
                 titleLabel,
                 usernameField,
                 passwordField,
+                confirmField,
                 errorLabel,
                 loginButton
         );
@@ -44,9 +57,38 @@ public class LoginScreen {
         primaryStage.setTitle("AutoHome Login");
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        // With no accounts yet, the first one has to be created explicitly
+        loginButton.setDisable(true);
+        DataManager.needsSetupAsync(empty -> {
+            loginButton.setDisable(false);
+            if (empty) {
+                showSetup();
+            }
+        }, e -> {
+            loginButton.setDisable(false);
+            errorLabel.setText("Could not read user accounts: " + e.getMessage());
+        });
     }
 
-    private void handleLogin(Stage primaryStage) {
+    private void showSetup() {
+        setupMode = true;
+        titleLabel.setText("Create Administrator");
+        confirmField.setVisible(true);
+        confirmField.setManaged(true);
+        loginButton.setText("Create Account");
+        errorLabel.setText("No accounts exist yet");
+    }
+
+    private void handleSubmit(Stage primaryStage) {
+        if (setupMode) {
+            handleSetup(primaryStage);
+        } else {
+            handleLogin(primaryStage);
+        }
+    }
+
+    private void handleSetup(Stage primaryStage) {
         String username = usernameField.getText().trim();
         String password = passwordField.getText().trim();
 
@@ -54,15 +96,62 @@ public class LoginScreen {
             errorLabel.setText("Please enter both username and password");
             return;
         }
+        if (!password.equals(confirmField.getText().trim())) {
+            errorLabel.setText("Passwords do not match");
+            return;
+        }
 
-        if (DataManager.validateUser(username, password)) {
-            String role = DataManager.getUserRole(username);
-            DataManager.logUsage(username, role, "Logged in");
+        loginButton.setDisable(true);
+        errorLabel.setText("Creating account...");
+        DataManager.createFirstAdminAsync(username, password.toCharArray(), created -> {
+            loginButton.setDisable(false);
+            if (created) {
+                errorLabel.setText("");
+                DataManager.logUsage(username, DataManager.ADMIN_ROLE, "Created administrator account");
 
-            SizeInputScreen sizeInput = new SizeInputScreen(username, role);
-            sizeInput.start(primaryStage);
-        } else {
-            errorLabel.setText("Invalid username or password");
+                SizeInputScreen sizeInput = new SizeInputScreen(username, DataManager.ADMIN_ROLE);
+                sizeInput.start(primaryStage);
+            } else {
+                // Someone else set the store up in the meantime; sign in normally
+                setupMode = false;
+                titleLabel.setText("AutoHome Login");
+                confirmField.setVisible(false);
+                confirmField.setManaged(false);
+                loginButton.setText("Login");
+                errorLabel.setText("An account already exists; please log in");
+            }
+        }, e -> {
+            loginButton.setDisable(false);
+            errorLabel.setText("Could not create the account: " + e.getMessage());
+        });
+    }
+
+    private void handleLogin(Stage primaryStage) {
+        String username = usernameField.getText().trim();
+        String password = passwordField.getText().trim();
+
+        if (username.isEmpty() || password.isEmpty()) {
+            errorLabel.setText("Please enter both username and password");
+            return;
         }
+
+        // Hashing takes a noticeable moment, so it runs off the FX thread
+        loginButton.setDisable(true);
+        errorLabel.setText("Signing in...");
+        DataManager.authenticateAsync(username, password.toCharArray(), role -> {
+            loginButton.setDisable(false);
+            if (role != null) {
+                errorLabel.setText("");
+                DataManager.logUsage(username, role, "Logged in");
+
+                SizeInputScreen sizeInput = new SizeInputScreen(username, role);
+                sizeInput.start(primaryStage);
+            } else {
+                errorLabel.setText("Invalid username or password");
+            }
+        }, e -> {
+            loginButton.setDisable(false);
+            errorLabel.setText("Could not read user accounts: " + e.getMessage());
+        });
     }
 }
\ No newline at end of file
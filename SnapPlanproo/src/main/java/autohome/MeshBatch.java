@@ -0,0 +1,64 @@
+package autohome;
+
+import javafx.scene.paint.Material;
+import javafx.scene.shape.MeshView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges the boxes of many model objects that share a material into one
+ * MeshView, remembering which object each face belongs to for picking.
+ * Consecutive faces of the same object are stored as one run, so the table
+ * grows with the number of objects rather than the number of faces.
+ */
+public class MeshBatch<T> {
+    private final MeshBuilder builder = new MeshBuilder();
+    private final Material material;
+    private final List<T> runOwners = new ArrayList<>();
+    // Exclusive end face of each run in runOwners
+    private int[] runEnds = new int[16];
+    private int faceCount;
+
+    public MeshBatch(Material material) {
+        this.material = material;
+    }
+
+    public void addBox(T owner, double x, double y, double z, double width, double height, double depth) {
+        faceCount += builder.addBox(x, y, z, width, height, depth);
+        int runs = runOwners.size();
+        if (runs > 0 && runOwners.get(runs - 1) == owner) {
+            runEnds[runs - 1] = faceCount;
+            return;
+        }
+        if (runs == runEnds.length) {
+            runEnds = Arrays.copyOf(runEnds, runs * 2);
+        }
+        runOwners.add(owner);
+        runEnds[runs] = faceCount;
+    }
+
+    /** Returns the object that contributed the given face, or null if out of range. */
+    public T ownerOfFace(int face) {
+        if (face < 0 || face >= faceCount) return null;
+        int low = 0;
+        int high = runOwners.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (runEnds[mid] <= face) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return runOwners.get(low);
+    }
+
+    public MeshView build(Object userData) {
+        MeshView view = new MeshView(builder.build());
+        view.setMaterial(material);
+        view.setUserData(userData);
+        return view;
+    }
+}
@@ -0,0 +1,196 @@
+package autohome;
+
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates primitive geometry into a single TriangleMesh, so many boxes,
+ * cylinders and spheres can be drawn by one MeshView instead of one node each.
+ * Boxes are flat shaded; curved primitives get their own smoothing groups.
+ */
+public class MeshBuilder {
+    // Same vertex order and winding as javafx.scene.shape.Box
+    private static final int[] BOX_FACES = {
+            0, 2, 1, 2, 0, 3,
+            1, 6, 5, 6, 1, 2,
+            5, 7, 4, 7, 5, 6,
+            4, 3, 0, 3, 4, 7,
+            3, 6, 2, 6, 3, 7,
+            4, 1, 5, 1, 4, 0
+    };
+    private static final int FLAT = 0;
+    private static final int SMOOTH_SIDE = 1;
+    private static final int SMOOTH_TOP = 2;
+    private static final int SMOOTH_BOTTOM = 4;
+
+    private float[] points = new float[3 * 64];
+    private int pointCount;
+    private int[] faces = new int[6 * 64];
+    private int[] smoothingGroups = new int[64];
+    private int faceCount;
+    private float[] texCoords = new float[2 * 4];
+    private int texCoordCount;
+    private int currentTexCoord;
+
+    /** Registers a texture coordinate and returns its index for {@link #useTexCoord}. */
+    public int addTexCoord(double u, double v) {
+        if (texCoordCount * 2 + 2 > texCoords.length) {
+            texCoords = Arrays.copyOf(texCoords, texCoords.length * 2);
+        }
+        texCoords[texCoordCount * 2] = (float) u;
+        texCoords[texCoordCount * 2 + 1] = (float) v;
+        return texCoordCount++;
+    }
+
+    /** Sets the texture coordinate used by every vertex of primitives added afterwards. */
+    public void useTexCoord(int index) {
+        currentTexCoord = index;
+    }
+
+    /** Adds an axis-aligned box centered at (x, y, z); returns the number of faces added. */
+    public int addBox(double x, double y, double z, double width, double height, double depth) {
+        float hw = (float) (width / 2);
+        float hh = (float) (height / 2);
+        float hd = (float) (depth / 2);
+        float cx = (float) x;
+        float cy = (float) y;
+        float cz = (float) z;
+
+        int base = pointCount;
+        addPoint(cx - hw, cy - hh, cz - hd);
+        addPoint(cx + hw, cy - hh, cz - hd);
+        addPoint(cx + hw, cy + hh, cz - hd);
+        addPoint(cx - hw, cy + hh, cz - hd);
+        addPoint(cx - hw, cy - hh, cz + hd);
+        addPoint(cx + hw, cy - hh, cz + hd);
+        addPoint(cx + hw, cy + hh, cz + hd);
+        addPoint(cx - hw, cy + hh, cz + hd);
+
+        for (int i = 0; i < BOX_FACES.length; i += 3) {
+            addFace(base + BOX_FACES[i], base + BOX_FACES[i + 1], base + BOX_FACES[i + 2], FLAT);
+        }
+        return BOX_FACES.length / 3;
+    }
+
+    /** Adds a horizontal quad centered at (x, y, z) facing up (-y). */
+    public int addQuadXZ(double x, double y, double z, double width, double depth) {
+        float hw = (float) (width / 2);
+        float hd = (float) (depth / 2);
+        float cx = (float) x;
+        float cy = (float) y;
+        float cz = (float) z;
+
+        int base = pointCount;
+        addPoint(cx - hw, cy, cz - hd);
+        addPoint(cx + hw, cy, cz - hd);
+        addPoint(cx + hw, cy, cz + hd);
+        addPoint(cx - hw, cy, cz + hd);
+
+        addFace(base, base + 1, base + 2, FLAT);
+        addFace(base, base + 2, base + 3, FLAT);
+        return 2;
+    }
+
+    /** Adds a Y-axis cylinder centered at (x, y, z), like javafx.scene.shape.Cylinder. */
+    public int addCylinder(double x, double y, double z, double radius, double height, int divisions) {
+        float cx = (float) x;
+        float cz = (float) z;
+        float top = (float) (y - height / 2);
+        float bottom = (float) (y + height / 2);
+
+        int topCenter = pointCount;
+        addPoint(cx, top, cz);
+        int bottomCenter = pointCount;
+        addPoint(cx, bottom, cz);
+
+        int ring = pointCount;
+        for (int i = 0; i < divisions; i++) {
+            double angle = 2 * Math.PI * i / divisions;
+            float px = (float) (x + Math.cos(angle) * radius);
+            float pz = (float) (z + Math.sin(angle) * radius);
+            addPoint(px, top, pz);
+            addPoint(px, bottom, pz);
+        }
+
+        for (int i = 0; i < divisions; i++) {
+            int t0 = ring + 2 * i;
+            int b0 = t0 + 1;
+            int t1 = ring + 2 * ((i + 1) % divisions);
+            int b1 = t1 + 1;
+            addFace(t0, b0, t1, SMOOTH_SIDE);
+            addFace(t1, b0, b1, SMOOTH_SIDE);
+            addFace(topCenter, t0, t1, SMOOTH_TOP);
+            addFace(bottomCenter, b1, b0, SMOOTH_BOTTOM);
+        }
+        return divisions * 4;
+    }
+
+    /** Adds a latitude/longitude sphere centered at (x, y, z). */
+    public int addSphere(double x, double y, double z, double radius, int divisions) {
+        int rings = Math.max(2, divisions / 2);
+        int base = pointCount;
+        for (int j = 0; j <= rings; j++) {
+            double polar = Math.PI * j / rings;
+            double ringRadius = Math.sin(polar) * radius;
+            float py = (float) (y - Math.cos(polar) * radius);
+            for (int i = 0; i < divisions; i++) {
+                double angle = 2 * Math.PI * i / divisions;
+                addPoint((float) (x + Math.cos(angle) * ringRadius), py,
+                        (float) (z + Math.sin(angle) * ringRadius));
+            }
+        }
+
+        for (int j = 0; j < rings; j++) {
+            for (int i = 0; i < divisions; i++) {
+                int a = base + j * divisions + i;
+                int b = base + j * divisions + (i + 1) % divisions;
+                int c = a + divisions;
+                int d = b + divisions;
+                addFace(a, c, b, SMOOTH_SIDE);
+                addFace(b, c, d, SMOOTH_SIDE);
+            }
+        }
+        return rings * divisions * 2;
+    }
+
+    public TriangleMesh build() {
+        TriangleMesh mesh = new TriangleMesh();
+        if (texCoordCount == 0) {
+            mesh.getTexCoords().addAll(0, 0);
+        } else {
+            mesh.getTexCoords().setAll(texCoords, 0, texCoordCount * 2);
+        }
+        mesh.getPoints().setAll(points, 0, pointCount * 3);
+        mesh.getFaces().setAll(faces, 0, faceCount * 6);
+        mesh.getFaceSmoothingGroups().setAll(smoothingGroups, 0, faceCount);
+        return mesh;
+    }
+
+    private void addPoint(float x, float y, float z) {
+        if (pointCount * 3 + 3 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        int i = pointCount * 3;
+        points[i] = x;
+        points[i + 1] = y;
+        points[i + 2] = z;
+        pointCount++;
+    }
+
+    private void addFace(int a, int b, int c, int smoothingGroup) {
+        if (faceCount * 6 + 6 > faces.length) {
+            faces = Arrays.copyOf(faces, faces.length * 2);
+            smoothingGroups = Arrays.copyOf(smoothingGroups, smoothingGroups.length * 2);
+        }
+        int i = faceCount * 6;
+        faces[i] = a;
+        faces[i + 1] = currentTexCoord;
+        faces[i + 2] = b;
+        faces[i + 3] = currentTexCoord;
+        faces[i + 4] = c;
+        faces[i + 5] = currentTexCoord;
+        smoothingGroups[faceCount] = smoothingGroup;
+        faceCount++;
+    }
+}
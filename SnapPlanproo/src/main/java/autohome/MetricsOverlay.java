@@ -0,0 +1,79 @@
+package autohome;
+
+import autohome.model.Counter;
+import autohome.model.Histogram;
+import autohome.model.Metrics;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-screen text of the metrics registry, refreshed twice a second. While it
+ * is shown it also times FX pulses into {@code fx.frame} and keeps the frame
+ * rate in {@code fx.fps}; hidden, it costs nothing.
+ */
+public class MetricsOverlay {
+    private static final Histogram FRAME_TIME = Metrics.histogram("fx.frame");
+    private static final Counter FRAME_RATE = Metrics.counter("fx.fps");
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Label label = new Label();
+    private long lastFrame;
+    private long lastRefresh;
+    private int frames;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (lastFrame != 0) {
+                FRAME_TIME.record(now - lastFrame);
+            }
+            lastFrame = now;
+            frames++;
+            if (now - lastRefresh >= REFRESH_NANOS) {
+                FRAME_RATE.set(Math.round(frames * (double) TimeUnit.SECONDS.toNanos(1) / (now - lastRefresh)));
+                frames = 0;
+                lastRefresh = now;
+                label.setText(Metrics.format());
+            }
+        }
+    };
+
+    public MetricsOverlay() {
+        label.setStyle("-fx-font-family: monospace; -fx-font-size: 11px; -fx-text-fill: white; " +
+                "-fx-background-color: rgba(0, 0, 0, 0.7); -fx-background-radius: 4;");
+        label.setPadding(new Insets(8));
+        label.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        label.setMouseTransparent(true);
+        label.setVisible(false);
+        StackPane.setAlignment(label, Pos.TOP_LEFT);
+        StackPane.setMargin(label, new Insets(10));
+    }
+
+    /** The overlay node, meant to sit above the window content in a StackPane. */
+    public Node getNode() {
+        return label;
+    }
+
+    public boolean isShowing() {
+        return label.isVisible();
+    }
+
+    public void setShowing(boolean showing) {
+        label.setVisible(showing);
+        if (showing) {
+            lastFrame = 0;
+            lastRefresh = System.nanoTime();
+            frames = 0;
+            label.setText(Metrics.format());
+            timer.start();
+        } else {
+            timer.stop();
+        }
+    }
+}
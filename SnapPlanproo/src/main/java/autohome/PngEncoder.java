@@ -0,0 +1,147 @@
+package autohome;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streams an 8-bit RGBA PNG from ARGB pixel rows, one row at a time, so the
+ * image never has to be held in memory in any other form. Rows use the Sub
+ * filter, which compresses the large flat areas of a blueprint well.
+ */
+public class PngEncoder implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int FILTER_SUB = 1;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] row;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkLength;
+    private int rowsWritten;
+    private boolean finished;
+
+    public PngEncoder(OutputStream out, int width, int height) throws IOException {
+        this(out, width, height, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public PngEncoder(OutputStream out, int width, int height, int compressionLevel) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        }
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.deflater = new Deflater(compressionLevel);
+        this.row = new byte[1 + width * 4];
+
+        this.out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = COLOR_TYPE_RGBA;
+        writeChunk("IHDR", header, header.length);
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /** Encodes one row of {@code width} ARGB pixels starting at {@code offset}. */
+    public void writeRow(int[] argb, int offset) throws IOException {
+        if (rowsWritten == height) {
+            throw new IllegalStateException("All " + height + " rows already written");
+        }
+
+        row[0] = FILTER_SUB;
+        int previous = 0;
+        for (int x = 0, i = 1; x < width; x++, i += 4) {
+            int pixel = argb[offset + x];
+            row[i] = (byte) ((pixel >> 16) - (previous >> 16));
+            row[i + 1] = (byte) ((pixel >> 8) - (previous >> 8));
+            row[i + 2] = (byte) (pixel - previous);
+            row[i + 3] = (byte) ((pixel >>> 24) - (previous >>> 24));
+            previous = pixel;
+        }
+
+        deflater.setInput(row);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+        rowsWritten++;
+    }
+
+    /** Writes consecutive rows from a buffer laid out with the given scanline stride. */
+    public void writeRows(int[] argb, int offset, int stride, int rows) throws IOException {
+        for (int r = 0; r < rows; r++) {
+            writeRow(argb, offset + r * stride);
+        }
+    }
+
+    /** Finishes the image; every row must have been written. Does not close the stream. */
+    public void finish() throws IOException {
+        if (rowsWritten != height) {
+            throw new IllegalStateException("Only " + rowsWritten + " of " + height + " rows written");
+        }
+        if (finished) return;
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain();
+        }
+        if (chunkLength > 0) {
+            writeChunk("IDAT", chunk, chunkLength);
+        }
+        deflater.end();
+        writeChunk("IEND", chunk, 0);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten == height) {
+                finish();
+            }
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, chunk.length - chunkLength);
+        if (chunkLength == chunk.length) {
+            writeChunk("IDAT", chunk, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
@@ -1,70 +1,236 @@
 package autohome;
 
-import javafx.embed.swing.SwingFXUtils;
+import autohome.model.Histogram;
+import autohome.model.Metrics;
+import autohome.model.Plan;
+import autohome.model.TileRenderer;
+import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
-import javax.imageio.ImageIO;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 public class ReportGenerator {
-    public static String saveBlueprintImage(Stage stage, WritableImage snapshot) {
+    public static final String REPORT_TITLE = "House Design Report";
+    public static final String SPECS_TITLE = "Floor Plan Specifications";
+    public static final String BLUEPRINT_TITLE = "Blueprint Design";
+    public static final String FOOTER = "Generated by SnapPlan Pro Lite - Autohome Designer\n© 2025 Autohome Inc. All rights reserved.";
+    private static final int EXPORT_TILE_WIDTH = 1024;
+    private static final int EXPORT_TILE_HEIGHT = 256;
+    private static final Histogram PNG_TIME = Metrics.histogram("export.png");
+    private static final Histogram HI_RES_TIME = Metrics.histogram("export.hiRes");
+    private static final Histogram BAND_TIME = Metrics.histogram("export.band");
+    private static final Histogram REPORT_TIME = Metrics.histogram("report.build");
+    private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "png-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Asks for a file, then saves the snapshot in the background and passes the
+     * saved path, or null if saving failed, to {@code onSaved} on the FX thread.
+     */
+    public static void saveBlueprintImageAsync(Stage stage, WritableImage snapshot,
+                                               DoubleConsumer onProgress, Consumer<String> onSaved) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Blueprint Image");
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG files", "*.png"));
         File file = fileChooser.showSaveDialog(stage);
         if (file != null) {
+            saveImageAsync(snapshot, file, onProgress,
+                    () -> onSaved.accept(file.getAbsolutePath()),
+                    e -> {
+                        new Alert(Alert.AlertType.ERROR, "Error saving blueprint: " + e.getMessage()).show();
+                        onSaved.accept(null);
+                    });
+        }
+    }
+
+    public static void saveImage(WritableImage image, File file) throws IOException {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        encodePng(readPixels(image, width, height), width, height, file, null);
+    }
+
+    /**
+     * Copies the pixels on the calling (FX) thread and encodes the PNG on a
+     * background thread. All callbacks run on the FX thread.
+     */
+    public static void saveImageAsync(WritableImage image, File file, DoubleConsumer onProgress,
+                                      Runnable onSuccess, Consumer<IOException> onFailure) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = readPixels(image, width, height);
+        EXPORT_EXECUTOR.execute(() -> {
             try {
-                saveImage(snapshot, file);
-                return file.getAbsolutePath();
+                encodePng(pixels, width, height, file, onProgress);
+                Platform.runLater(onSuccess);
             } catch (IOException e) {
-                e.printStackTrace();
-                return null;
+                Platform.runLater(() -> onFailure.accept(e));
             }
+        });
+    }
+
+    /**
+     * Exports the plan at the given scale without a full-size snapshot: each
+     * band of tiles is rendered on the FX thread and streamed into the PNG on
+     * the export thread, so only one band of pixels is held at any time.
+     * Call on the FX thread; callbacks run on the FX thread.
+     */
+    public static void exportPlanAsync(Plan plan, double scale, File file, DoubleConsumer onProgress,
+                                       Runnable onSuccess, Consumer<IOException> onFailure) {
+        TileRenderer tiles = new TileRenderer(plan, scale, EXPORT_TILE_WIDTH, EXPORT_TILE_HEIGHT);
+        Path temp = null;
+        PngEncoder encoder;
+        try {
+            temp = tempFileFor(file);
+            encoder = new PngEncoder(new BufferedOutputStream(Files.newOutputStream(temp)),
+                    tiles.getOutputWidth(), tiles.getOutputHeight());
+        } catch (IOException e) {
+            if (temp != null) {
+                discard(temp, e);
+            }
+            onFailure.accept(e);
+            return;
         }
-        return null;
+        int[] band = new int[tiles.getOutputWidth() * tiles.getBandHeight()];
+        long start = System.nanoTime();
+        Runnable finished = () -> {
+            HI_RES_TIME.recordSince(start);
+            onSuccess.run();
+        };
+        exportBand(tiles, encoder, temp, file, band, 0, onProgress, finished, onFailure);
     }
 
-    public static void saveImage(WritableImage image, File file) throws IOException {
-        ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", file);
+    private static void exportBand(TileRenderer tiles, PngEncoder encoder, Path temp, File file, int[] band, int y,
+                                   DoubleConsumer onProgress, Runnable onSuccess, Consumer<IOException> onFailure) {
+        long start = System.nanoTime();
+        int rows = tiles.renderBand(y, band);
+        BAND_TIME.recordSince(start);
+        EXPORT_EXECUTOR.execute(() -> {
+            try {
+                encoder.writeRows(band, 0, tiles.getOutputWidth(), rows);
+                int next = y + rows;
+                if (next < tiles.getOutputHeight()) {
+                    Platform.runLater(() -> {
+                        onProgress.accept((double) next / tiles.getOutputHeight());
+                        exportBand(tiles, encoder, temp, file, band, next, onProgress, onSuccess, onFailure);
+                    });
+                } else {
+                    encoder.close();
+                    replace(temp, file);
+                    Platform.runLater(onSuccess);
+                }
+            } catch (IOException e) {
+                try {
+                    encoder.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                discard(temp, e);
+                Platform.runLater(() -> onFailure.accept(e));
+            }
+        });
+    }
+
+    private static int[] readPixels(WritableImage image, int width, int height) {
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return pixels;
+    }
+
+    private static void encodePng(int[] pixels, int width, int height, File file,
+                                  DoubleConsumer onProgress) throws IOException {
+        long start = System.nanoTime();
+        Path temp = tempFileFor(file);
+        try {
+            try (PngEncoder encoder = new PngEncoder(new BufferedOutputStream(Files.newOutputStream(temp)), width, height)) {
+                int reported = 0;
+                for (int y = 0; y < height; y++) {
+                    encoder.writeRow(pixels, y * width);
+                    int percent = (y + 1) * 100 / height;
+                    if (onProgress != null && percent != reported) {
+                        reported = percent;
+                        Platform.runLater(() -> onProgress.accept(percent / 100.0));
+                    }
+                }
+                encoder.finish();
+            }
+            replace(temp, file);
+        } catch (IOException | RuntimeException e) {
+            discard(temp, e);
+            throw e;
+        }
+        PNG_TIME.recordSince(start);
+    }
+
+    /** A new file beside {@code file}, written first so a failed export never leaves a truncated image. */
+    private static Path tempFileFor(File file) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        return Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    }
+
+    private static void replace(Path temp, File file) throws IOException {
+        Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void discard(Path temp, Exception cause) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
     }
 
     public static void generateReport(Stage stage, int bedrooms, int bathrooms, int kitchens,
                                       boolean hasGarden, String blueprintPath, String userName, String userRole) {
+        long start = System.nanoTime();
         Stage reportStage = new Stage();
-        reportStage.setTitle("House Design Report");
+        reportStage.setTitle(REPORT_TITLE);
 
         VBox reportContent = new VBox(20);
         reportContent.setPadding(new javafx.geometry.Insets(20));
         reportContent.setStyle("-fx-background-color: white;");
 
-        Label title = new Label("House Design Report");
+        Label title = new Label(REPORT_TITLE);
         title.setStyle("-fx-font-size: 24px; -fx-font-weight: bold;");
 
         VBox specsBox = new VBox(10);
         specsBox.setPadding(new javafx.geometry.Insets(10));
         specsBox.setStyle("-fx-background-color: #f8f8f8; -fx-border-color: #e0e0e0; -fx-border-width: 1; -fx-border-radius: 5;");
 
-        Label specsTitle = new Label("Floor Plan Specifications");
+        Label specsTitle = new Label(SPECS_TITLE);
         specsTitle.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-underline: true;");
 
         GridPane specsGrid = new GridPane();
         specsGrid.setHgap(10);
         specsGrid.setVgap(5);
-        specsGrid.addRow(0, new Label("Bedrooms:"), new Label(String.valueOf(bedrooms)));
-        specsGrid.addRow(1, new Label("Bathrooms:"), new Label(String.valueOf(bathrooms)));
-        specsGrid.addRow(2, new Label("Kitchens:"), new Label(String.valueOf(kitchens)));
-        specsGrid.addRow(3, new Label("Garden:"), new Label(hasGarden ? "Yes" : "No"));
-        specsGrid.addRow(4, new Label("User:"), new Label(userName + " (" + userRole + ")"));
+        List<String[]> specs = specRows(bedrooms, bathrooms, kitchens, hasGarden, userName, userRole);
+        for (int i = 0; i < specs.size(); i++) {
+            specsGrid.addRow(i, new Label(specs.get(i)[0]), new Label(specs.get(i)[1]));
+        }
 
         specsBox.getChildren().addAll(specsTitle, specsGrid);
 
@@ -72,7 +238,7 @@ public class ReportGenerator {
         blueprintBox.setPadding(new javafx.geometry.Insets(10));
         blueprintBox.setStyle("-fx-background-color: #f8f8f8; -fx-border-color: #e0e0e0; -fx-border-width: 1; -fx-border-radius: 5;");
 
-        Label blueprintTitle = new Label("Blueprint Design");
+        Label blueprintTitle = new Label(BLUEPRINT_TITLE);
         blueprintTitle.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-underline: true;");
 
         ImageView blueprintView = new ImageView();
@@ -93,7 +259,7 @@ public class ReportGenerator {
 
         blueprintBox.getChildren().addAll(blueprintTitle, blueprintView);
 
-        Label footer = new Label("Generated by SnapPlan Pro Lite - Autohome Designer\n© 2025 Autohome Inc. All rights reserved.");
+        Label footer = new Label(FOOTER);
         footer.setStyle("-fx-font-size: 14px; -fx-text-fill: #555;");
 
         reportContent.getChildren().addAll(
@@ -109,6 +275,19 @@ public class ReportGenerator {
         Scene scene = new Scene(scrollPane, 800, 700);
         reportStage.setScene(scene);
         reportStage.show();
+        REPORT_TIME.recordSince(start);
+    }
+
+    /** Label/value rows of the specifications table, shared with the headless report. */
+    public static List<String[]> specRows(int bedrooms, int bathrooms, int kitchens, boolean hasGarden,
+                                          String userName, String userRole) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[]{"Bedrooms:", String.valueOf(bedrooms)});
+        rows.add(new String[]{"Bathrooms:", String.valueOf(bathrooms)});
+        rows.add(new String[]{"Kitchens:", String.valueOf(kitchens)});
+        rows.add(new String[]{"Garden:", hasGarden ? "Yes" : "No"});
+        rows.add(new String[]{"User:", userName + " (" + userRole + ")"});
+        return rows;
     }
 
     private static Image createPlaceholderImage() {
@@ -1,24 +1,54 @@
 package autohome;
 
 import autohome.model.*;
+import javafx.animation.AnimationTimer;
 import javafx.collections.ObservableList;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
 import javafx.scene.*;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.PickResult;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Material;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.*;
 import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Transform;
 import javafx.scene.transform.Translate;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.PointLight;
 import javafx.scene.Group;
 import javafx.scene.SceneAntialiasing;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class ThreeDView {
+    // Swatches of the shared furniture texture, indexed by texture coordinate
+    private static final Color[] FURNITURE_SWATCHES = { Color.BURLYWOOD, Color.LIGHTCORAL, Color.SILVER };
+    private static final int WOOD = 0;
+    private static final int FABRIC = 1;
+    private static final int METAL = 2;
+    private static final int LEG_DIVISIONS = 12;
+    private static final int TOP_DIVISIONS = 48;
+    private static final int HANDLE_DIVISIONS = 8;
+    private static final double DEFAULT_GRID_SIZE = 2000;
+    private static final double DEFAULT_GRID_STEP = 100;
+    private static final double GRID_LINE_WIDTH = 1;
+    private static final double DEFAULT_LOD_DISTANCE = 1500;
+    private static final Histogram UPDATE_TIME = Metrics.histogram("3d.updateScene");
+    private static final Counter NODE_COUNT = Metrics.counter("3d.nodes");
+    private static final Counter ITEM_COUNT = Metrics.counter("3d.items");
+
     private final PerspectiveCamera camera = new PerspectiveCamera(true);
     private final Rotate cameraRotateX = new Rotate(-30, Rotate.X_AXIS);
     private final Rotate cameraRotateY = new Rotate(0, Rotate.Y_AXIS);
@@ -30,13 +60,50 @@ public class ThreeDView {
     private final Pane container = new Pane();
 
     private Node selectedNode;
+    private double pressTranslateX, pressTranslateZ;
+    private BiConsumer<Furniture, Point2D> onFurnitureMoved;
+    private Consumer<Room> onRoomPicked;
     private final double roomHeight = 100;
     private final double floorLevel = 300;
     private final double wallThickness = 10;
+    private MeshView grid;
 
     // Furniture materials
     private final Map<String, PhongMaterial> materials = new HashMap<>();
 
+    // Furniture geometry shared by all items of the same type and size
+    private final Map<String, TriangleMesh> furnitureMeshes = new HashMap<>();
+
+    // Merged room geometry, one mesh per material
+    private final Map<MeshView, MeshBatch<Room>> roomBatches = new HashMap<>();
+    private final List<Room> builtRooms = new ArrayList<>();
+    private int[] builtRoomVersions = new int[0];
+
+    // Scene node of each furniture and structure item, with the model version it reflects
+    private final Map<DraggableItem, SceneEntry> sceneNodes = new IdentityHashMap<>();
+
+    // Visibility pass, run at most once per pulse after the camera or scene changed
+    private double lodDistance = DEFAULT_LOD_DISTANCE;
+    private final AnimationTimer visibilityTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            updateVisibility();
+            stop();
+        }
+    };
+
+    private static final class SceneEntry {
+        private final Node node;
+        private int version;
+        // Bounding box shown instead of a distant furniture item, created on first use
+        private Box proxy;
+
+        private SceneEntry(Node node, int version) {
+            this.node = node;
+            this.version = version;
+        }
+    }
+
     public ThreeDView() {
         // Setup subscene
         subScene = new SubScene(sceneRoot, 800, 600, true, SceneAntialiasing.BALANCED);
@@ -84,10 +151,19 @@ public class ThreeDView {
         sceneRoot.getChildren().add(floor);
 
         // Add grid for better perspective
-        addGrid();
+        setGrid(DEFAULT_GRID_SIZE, DEFAULT_GRID_STEP);
 
         // Setup mouse controls
         setupMouseControls();
+
+        // Re-run culling and level of detail whenever the view changes
+        cameraRotateX.angleProperty().addListener(o -> visibilityTimer.start());
+        cameraRotateY.angleProperty().addListener(o -> visibilityTimer.start());
+        cameraPosition.xProperty().addListener(o -> visibilityTimer.start());
+        cameraPosition.yProperty().addListener(o -> visibilityTimer.start());
+        cameraPosition.zProperty().addListener(o -> visibilityTimer.start());
+        subScene.widthProperty().addListener(o -> visibilityTimer.start());
+        subScene.heightProperty().addListener(o -> visibilityTimer.start());
     }
 
     private void initMaterials() {
@@ -126,31 +202,50 @@ public class ThreeDView {
         materials.put("metal", metalMaterial);
         materials.put("floor", floorMaterial);
         materials.put("wall", wallMaterial);
+
+        // Grid material
+        materials.put("grid", new PhongMaterial(Color.GRAY.deriveColor(0, 1, 1, 0.4)));
+
+        // Furniture material: one texture holding the wood, fabric and metal colors,
+        // so each furniture item is a single MeshView
+        WritableImage swatches = new WritableImage(FURNITURE_SWATCHES.length, 1);
+        for (int i = 0; i < FURNITURE_SWATCHES.length; i++) {
+            swatches.getPixelWriter().setColor(i, 0, FURNITURE_SWATCHES[i]);
+        }
+        PhongMaterial furnitureMaterial = new PhongMaterial();
+        furnitureMaterial.setDiffuseMap(swatches);
+        furnitureMaterial.setSpecularColor(Color.WHITE);
+        furnitureMaterial.setSpecularPower(64);
+        materials.put("furniture", furnitureMaterial);
     }
 
-    private void addGrid() {
-        // Create a grid for better depth perception
-        Group gridGroup = new Group();
-        int gridSize = 2000;
-        int gridStep = 100;
-
-        for (int i = -gridSize/2; i <= gridSize/2; i += gridStep) {
-            // X-axis lines
-            Box lineX = new Box(gridSize, 1, 1);
-            lineX.setMaterial(new PhongMaterial(Color.GRAY.deriveColor(0, 1, 1, 0.4)));
-            lineX.setTranslateY(floorLevel + 1);
-            lineX.setTranslateZ(i);
-            gridGroup.getChildren().add(lineX);
-
-            // Z-axis lines
-            Box lineZ = new Box(1, 1, gridSize);
-            lineZ.setMaterial(new PhongMaterial(Color.GRAY.deriveColor(0, 1, 1, 0.4)));
-            lineZ.setTranslateY(floorLevel + 1);
-            lineZ.setTranslateX(i);
-            gridGroup.getChildren().add(lineZ);
+    /**
+     * Replaces the floor grid. All lines are thin quads in one mesh with one
+     * material, so a fine step adds geometry but no extra nodes. Both the size
+     * and the step must be positive and finite.
+     */
+    public void setGrid(double gridSize, double gridStep) {
+        if (!(gridSize > 0 && gridStep > 0) || Double.isInfinite(gridSize) || Double.isInfinite(gridStep)) {
+            throw new IllegalArgumentException("Invalid grid size " + gridSize + " or step " + gridStep);
+        }
+        if (grid != null) {
+            sceneRoot.getChildren().remove(grid);
+        }
+
+        MeshBuilder builder = new MeshBuilder();
+        int lineCount = (int) Math.floor(gridSize / gridStep);
+        for (int i = 0; i <= lineCount; i++) {
+            double offset = -gridSize / 2 + i * gridStep;
+            // X-axis line
+            builder.addQuadXZ(0, floorLevel + 1, offset, gridSize, GRID_LINE_WIDTH);
+            // Z-axis line
+            builder.addQuadXZ(offset, floorLevel + 1, 0, GRID_LINE_WIDTH, gridSize);
         }
 
-        sceneRoot.getChildren().add(gridGroup);
+        grid = new MeshView(builder.build());
+        grid.setMaterial(materials.get("grid"));
+        grid.setCullFace(CullFace.NONE);
+        sceneRoot.getChildren().add(grid);
     }
 
     public ObservableList<Node> getChildren() {
@@ -164,7 +259,7 @@ public class ThreeDView {
     private void setupMouseControls() {
         sceneRoot.setOnMousePressed(this::handleMousePressed);
         sceneRoot.setOnMouseDragged(this::handleMouseDragged);
-        sceneRoot.setOnMouseReleased(e -> selectedNode = null);
+        sceneRoot.setOnMouseReleased(this::handleMouseReleased);
 
         sceneRoot.setOnScroll(event -> {
             double zoomFactor = 1.05;
@@ -184,11 +279,30 @@ public class ThreeDView {
 
         if (me.getPickResult().getIntersectedNode() != null) {
             Node picked = me.getPickResult().getIntersectedNode();
-            if (picked.getUserData() != null && "furniture".equals(picked.getUserData())) {
+            if (picked.getUserData() instanceof Furniture) {
                 selectedNode = picked;
+                pressTranslateX = picked.getTranslateX();
+                pressTranslateZ = picked.getTranslateZ();
                 me.consume();
+                return;
             }
         }
+
+        Room room = roomAt(me.getPickResult());
+        if (room != null && onRoomPicked != null) {
+            onRoomPicked.accept(room);
+        }
+    }
+
+    /** The room whose floor or wall was hit, resolved through the merged mesh's face table; null if none. */
+    public Room roomAt(PickResult pick) {
+        MeshBatch<Room> batch = roomBatches.get(pick.getIntersectedNode());
+        return batch != null ? batch.ownerOfFace(pick.getIntersectedFace()) : null;
+    }
+
+    /** Called with the room under a mouse press that did not grab furniture. */
+    public void setOnRoomPicked(Consumer<Room> handler) {
+        this.onRoomPicked = handler;
     }
 
     private void handleMouseDragged(MouseEvent me) {
@@ -215,290 +329,403 @@ public class ThreeDView {
         me.consume();
     }
 
-    public void updateScene(List<Room> rooms, List<Furniture> furniture, List<Structure> structures) {
-        sceneRoot.getChildren().removeIf(node ->
-                node.getUserData() != null &&
-                        ("room".equals(node.getUserData()) ||
-                                "furniture".equals(node.getUserData()) ||
-                                "structure".equals(node.getUserData()))
-        );
+    /**
+     * Writes a furniture drag back to the model once the mouse is released:
+     * the dragged item and its new blueprint position are handed to
+     * {@code handler}, which should move the item on the canvas. Without a
+     * handler, dragged furniture springs back to its model position.
+     */
+    public void setOnFurnitureMoved(BiConsumer<Furniture, Point2D> handler) {
+        this.onFurnitureMoved = handler;
+    }
 
-        for (Room room : rooms) {
-            addRoomWithWalls(room);
+    private void handleMouseReleased(MouseEvent me) {
+        if (selectedNode == null) return;
+
+        Furniture item = (Furniture) selectedNode.getUserData();
+        double deltaX = selectedNode.getTranslateX() - pressTranslateX;
+        double deltaZ = selectedNode.getTranslateZ() - pressTranslateZ;
+        if (onFurnitureMoved != null && (deltaX != 0 || deltaZ != 0)) {
+            // The scene's x and z axes are the blueprint's x and y
+            onFurnitureMoved.accept(item, new Point2D(item.getX() + deltaX, item.getY() + deltaZ));
         }
+        // Until the next updateScene the node shows the model position, moved or not
+        positionFurniture(selectedNode, item);
+        selectedNode = null;
+    }
 
+    public void updateScene(List<Room> rooms, List<Furniture> furniture, List<Structure> structures) {
+        long start = System.nanoTime();
+        if (roomsChanged(rooms)) {
+            rebuildRooms(rooms);
+        }
+
+        Set<DraggableItem> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Node> added = new ArrayList<>();
         for (Furniture item : furniture) {
-            addFurniture(item);
+            live.add(item);
+            SceneEntry entry = sceneNodes.get(item);
+            if (entry == null) {
+                Node node = createFurniture(item);
+                sceneNodes.put(item, new SceneEntry(node, item.getVersion()));
+                added.add(node);
+            } else if (entry.version != item.getVersion()) {
+                positionFurniture(entry.node, item);
+                entry.version = item.getVersion();
+            }
         }
 
         for (Structure structure : structures) {
-            addStructure(structure);
+            live.add(structure);
+            SceneEntry entry = sceneNodes.get(structure);
+            if (entry == null) {
+                Node node = createStructure(structure);
+                sceneNodes.put(structure, new SceneEntry(node, structure.getVersion()));
+                added.add(node);
+            } else if (entry.version != structure.getVersion()) {
+                positionStructure(entry.node, structure);
+                entry.version = structure.getVersion();
+            }
+        }
+
+        Set<Node> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        sceneNodes.entrySet().removeIf(e -> {
+            if (live.contains(e.getKey())) return false;
+            removed.add(e.getValue().node);
+            if (e.getValue().proxy != null) {
+                removed.add(e.getValue().proxy);
+            }
+            return true;
+        });
+
+        if (!removed.isEmpty()) {
+            sceneRoot.getChildren().removeAll(removed);
+        }
+        sceneRoot.getChildren().addAll(added);
+        visibilityTimer.start();
+
+        NODE_COUNT.set(sceneRoot.getChildren().size());
+        ITEM_COUNT.set(builtRooms.size() + sceneNodes.size());
+        UPDATE_TIME.recordSince(start);
+    }
+
+    /** Distance from the camera beyond which furniture is drawn as its bounding box. */
+    public void setLodDistance(double lodDistance) {
+        this.lodDistance = lodDistance;
+        visibilityTimer.start();
+    }
+
+    /**
+     * Hides furniture and structure nodes whose bounding sphere lies outside the
+     * camera frustum, and swaps distant furniture for a single bounding Box.
+     */
+    private void updateVisibility() {
+        double width = subScene.getWidth();
+        double height = subScene.getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        // Camera looks down +Z in its own space; its transform is a rotation plus translation
+        Transform view = camera.getLocalToSceneTransform();
+        double tanV = Math.tan(Math.toRadians(camera.getFieldOfView() / 2));
+        double tanH = tanV * width / height;
+        if (!camera.isVerticalFieldOfView()) {
+            tanH = tanV;
+            tanV = tanH * height / width;
+        }
+        double secH = Math.sqrt(1 + tanH * tanH);
+        double secV = Math.sqrt(1 + tanV * tanV);
+
+        List<Node> proxies = new ArrayList<>();
+        for (Map.Entry<DraggableItem, SceneEntry> e : sceneNodes.entrySet()) {
+            SceneEntry entry = e.getValue();
+            Bounds bounds = entry.node.getBoundsInParent();
+            double dx = bounds.getCenterX() - view.getTx();
+            double dy = bounds.getCenterY() - view.getTy();
+            double dz = bounds.getCenterZ() - view.getTz();
+            double x = view.getMxx() * dx + view.getMyx() * dy + view.getMzx() * dz;
+            double y = view.getMxy() * dx + view.getMyy() * dy + view.getMzy() * dz;
+            double z = view.getMxz() * dx + view.getMyz() * dy + view.getMzz() * dz;
+            double radius = Math.sqrt(bounds.getWidth() * bounds.getWidth() +
+                    bounds.getHeight() * bounds.getHeight() +
+                    bounds.getDepth() * bounds.getDepth()) / 2;
+
+            boolean inFrustum = z + radius >= camera.getNearClip() &&
+                    z - radius <= camera.getFarClip() &&
+                    (Math.abs(x) - z * tanH) / secH <= radius &&
+                    (Math.abs(y) - z * tanV) / secV <= radius;
+            boolean far = e.getKey() instanceof Furniture &&
+                    x * x + y * y + z * z > lodDistance * lodDistance;
+
+            if (far && inFrustum && entry.proxy == null) {
+                entry.proxy = new Box(bounds.getWidth(), bounds.getHeight(), bounds.getDepth());
+                entry.proxy.setMaterial(materials.get("wood"));
+                entry.proxy.setMouseTransparent(true);
+                proxies.add(entry.proxy);
+            }
+            if (entry.proxy != null) {
+                entry.proxy.setTranslateX(bounds.getCenterX());
+                entry.proxy.setTranslateY(bounds.getCenterY());
+                entry.proxy.setTranslateZ(bounds.getCenterZ());
+                entry.proxy.setVisible(inFrustum && far);
+            }
+            entry.node.setVisible(inFrustum && !far);
+        }
+        sceneRoot.getChildren().addAll(proxies);
+    }
+
+    private boolean roomsChanged(List<Room> rooms) {
+        if (rooms.size() != builtRooms.size()) return true;
+        for (int i = 0; i < rooms.size(); i++) {
+            if (rooms.get(i) != builtRooms.get(i) || rooms.get(i).getVersion() != builtRoomVersions[i]) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void addRoomWithWalls(Room room) {
+    private void rebuildRooms(List<Room> rooms) {
+        sceneRoot.getChildren().removeAll(roomBatches.keySet());
+        roomBatches.clear();
+
+        Map<Material, MeshBatch<Room>> batches = new LinkedHashMap<>();
+        for (Room room : rooms) {
+            addRoomWithWalls(room, batches);
+        }
+        for (MeshBatch<Room> batch : batches.values()) {
+            MeshView view = batch.build("room");
+            roomBatches.put(view, batch);
+            sceneRoot.getChildren().add(view);
+        }
+
+        builtRooms.clear();
+        builtRooms.addAll(rooms);
+        builtRoomVersions = new int[rooms.size()];
+        for (int i = 0; i < rooms.size(); i++) {
+            builtRoomVersions[i] = rooms.get(i).getVersion();
+        }
+    }
+
+    private void addRoomWithWalls(Room room, Map<Material, MeshBatch<Room>> batches) {
         double roomY = floorLevel - roomHeight / 2;
         double centerX = 300;
         double centerZ = 200;
 
-        Box floor = new Box(room.getWidth(), 5, room.getHeight());
-        floor.setTranslateX(room.getX() - centerX);
-        floor.setTranslateY(roomY + roomHeight / 2 - 2.5);
-        floor.setTranslateZ(room.getY() - centerZ);
-        floor.setMaterial(materials.get("floor"));
-        floor.setUserData("room");
-        sceneRoot.getChildren().add(floor);
+        batches.computeIfAbsent(materials.get("floor"), MeshBatch::new).addBox(room,
+                room.getX() - centerX, roomY + roomHeight / 2 - 2.5, room.getY() - centerZ,
+                room.getWidth(), 5, room.getHeight());
 
-        addWall(room, room.getX() - centerX, roomY, room.getY() - centerZ - room.getHeight()/2,
+        MeshBatch<Room> walls = batches.computeIfAbsent(materials.get("wall"), MeshBatch::new);
+        addWall(walls, room, room.getX() - centerX, roomY, room.getY() - centerZ - room.getHeight()/2,
                 room.getWidth(), roomHeight, wallThickness);
 
-        addWall(room, room.getX() - centerX, roomY, room.getY() - centerZ + room.getHeight()/2,
+        addWall(walls, room, room.getX() - centerX, roomY, room.getY() - centerZ + room.getHeight()/2,
                 room.getWidth(), roomHeight, wallThickness);
 
-        addWall(room, room.getX() - centerX - room.getWidth()/2, roomY, room.getY() - centerZ,
+        addWall(walls, room, room.getX() - centerX - room.getWidth()/2, roomY, room.getY() - centerZ,
                 wallThickness, roomHeight, room.getHeight());
 
-        addWall(room, room.getX() - centerX + room.getWidth()/2, roomY, room.getY() - centerZ,
+        addWall(walls, room, room.getX() - centerX + room.getWidth()/2, roomY, room.getY() - centerZ,
                 wallThickness, roomHeight, room.getHeight());
     }
 
-    private void addWall(Room room, double x, double y, double z,
+    private void addWall(MeshBatch<Room> walls, Room room, double x, double y, double z,
                          double width, double height, double depth) {
-        Box wall = new Box(width, height, depth);
-        wall.setTranslateX(x);
-        wall.setTranslateY(y);
-        wall.setTranslateZ(z);
-        wall.setMaterial(materials.get("wall"));
-        wall.setUserData("room");
-        sceneRoot.getChildren().add(wall);
+        walls.addBox(room, x, y, z, width, height, depth);
     }
 
-    private void addFurniture(Furniture item) {
+    private Node createFurniture(Furniture item) {
+        String key = item.getType() + ":" + item.getWidth() + "x" + item.getHeight();
+        TriangleMesh mesh = furnitureMeshes.computeIfAbsent(key, k -> buildFurnitureMesh(item));
+
+        MeshView view = new MeshView(mesh);
+        view.setMaterial(materials.get("furniture"));
+        view.setUserData(item);
+        positionFurniture(view, item);
+
+        switch (item.getType()) {
+            case "Bed":
+                view.setTranslateY(floorLevel - 20);
+                break;
+            case "Sofa":
+                view.setTranslateY(floorLevel - 30);
+                break;
+            case "Table":
+                view.setTranslateY(floorLevel - 35);
+                break;
+            case "Chair":
+                view.setTranslateY(floorLevel - 40);
+                break;
+            case "Cabinet":
+                view.setTranslateY(floorLevel - 60);
+                break;
+            case "Desk":
+                view.setTranslateY(floorLevel - 37.5);
+                break;
+            default:
+                view.setTranslateY(floorLevel - 15);
+        }
+
+        return view;
+    }
+
+    private void positionFurniture(Node node, Furniture item) {
         double centerX = 300;
         double centerZ = 200;
 
-        Group furnitureGroup = new Group();
-        furnitureGroup.setTranslateX(item.getX() - centerX);
-        furnitureGroup.setTranslateZ(item.getY() - centerZ);
-        furnitureGroup.setUserData("furniture");
+        node.setTranslateX(item.getX() - centerX);
+        node.setTranslateZ(item.getY() - centerZ);
+    }
+
+    /** Builds the merged geometry shared by every item of the same type and size. */
+    private TriangleMesh buildFurnitureMesh(Furniture item) {
+        MeshBuilder builder = new MeshBuilder();
+        for (int i = 0; i < FURNITURE_SWATCHES.length; i++) {
+            builder.addTexCoord((i + 0.5) / FURNITURE_SWATCHES.length, 0.5);
+        }
 
         switch (item.getType()) {
             case "Bed":
-                createBed(furnitureGroup, item);
-                furnitureGroup.setTranslateY(floorLevel - 20);
+                createBed(builder, item);
                 break;
             case "Sofa":
-                createSofa(furnitureGroup, item);
-                furnitureGroup.setTranslateY(floorLevel - 30);
+                createSofa(builder, item);
                 break;
             case "Table":
-                createTable(furnitureGroup, item);
-                furnitureGroup.setTranslateY(floorLevel - 35);
+                createTable(builder, item);
                 break;
             case "Chair":
-                createChair(furnitureGroup, item);
-                furnitureGroup.setTranslateY(floorLevel - 40);
+                createChair(builder, item);
                 break;
             case "Cabinet":
-                createCabinet(furnitureGroup, item);
-                furnitureGroup.setTranslateY(floorLevel - 60);
+                createCabinet(builder, item);
                 break;
             case "Desk":
-                createDesk(furnitureGroup, item);
-                furnitureGroup.setTranslateY(floorLevel - 37.5);
+                createDesk(builder, item);
                 break;
             default:
-                Box defaultBox = new Box(item.getWidth(), 30, item.getHeight());
-                defaultBox.setMaterial(materials.get("wood"));
-                furnitureGroup.getChildren().add(defaultBox);
-                furnitureGroup.setTranslateY(floorLevel - 15);
+                builder.useTexCoord(WOOD);
+                builder.addBox(0, 0, 0, item.getWidth(), 30, item.getHeight());
         }
 
-        sceneRoot.getChildren().add(furnitureGroup);
+        return builder.build();
     }
 
-    private void createBed(Group group, Furniture bed) {
-        Box mattress = new Box(bed.getWidth() - 10, 15, bed.getHeight() - 10);
-        mattress.setMaterial(materials.get("fabric"));
-        mattress.setTranslateY(-7.5);
-        group.getChildren().add(mattress);
-
-        Box frameBase = new Box(bed.getWidth(), 10, bed.getHeight());
-        frameBase.setMaterial(materials.get("wood"));
-        frameBase.setTranslateY(5);
-        group.getChildren().add(frameBase);
-
-        Box headboard = new Box(10, 40, bed.getHeight());
-        headboard.setTranslateX(-bed.getWidth()/2 + 5);
-        headboard.setTranslateY(-30);
-        headboard.setMaterial(materials.get("wood"));
-        group.getChildren().add(headboard);
-
-        Box pillow1 = new Box(30, 8, 40);
-        pillow1.setTranslateX(-bed.getWidth()/4);
-        pillow1.setTranslateY(-25);
-        pillow1.setTranslateZ(15);
-        pillow1.setMaterial(materials.get("fabric"));
-        group.getChildren().add(pillow1);
-
-        Box pillow2 = new Box(30, 8, 40);
-        pillow2.setTranslateX(bed.getWidth()/4);
-        pillow2.setTranslateY(-25);
-        pillow2.setTranslateZ(15);
-        pillow2.setMaterial(materials.get("fabric"));
-        group.getChildren().add(pillow2);
+    private void createBed(MeshBuilder builder, Furniture bed) {
+        builder.useTexCoord(FABRIC);
+        builder.addBox(0, -7.5, 0, bed.getWidth() - 10, 15, bed.getHeight() - 10);
+
+        builder.useTexCoord(WOOD);
+        builder.addBox(0, 5, 0, bed.getWidth(), 10, bed.getHeight());
+        builder.addBox(-bed.getWidth()/2 + 5, -30, 0, 10, 40, bed.getHeight());
+
+        builder.useTexCoord(FABRIC);
+        builder.addBox(-bed.getWidth()/4, -25, 15, 30, 8, 40);
+        builder.addBox(bed.getWidth()/4, -25, 15, 30, 8, 40);
     }
 
-    private void createSofa(Group group, Furniture sofa) {
-        Box seat = new Box(sofa.getWidth(), 25, sofa.getHeight() - 10);
-        seat.setMaterial(materials.get("fabric"));
-        seat.setTranslateY(-12.5);
-        group.getChildren().add(seat);
-
-        Box back = new Box(sofa.getWidth(), 35, 10);
-        back.setMaterial(materials.get("fabric"));
-        back.setTranslateY(-35);
-        back.setTranslateZ(sofa.getHeight()/2 - 5);
-        group.getChildren().add(back);
-
-        Box armLeft = new Box(15, 35, sofa.getHeight());
-        armLeft.setTranslateX(-sofa.getWidth()/2 + 7.5);
-        armLeft.setTranslateY(-27.5);
-        armLeft.setMaterial(materials.get("fabric"));
-        group.getChildren().add(armLeft);
-
-        Box armRight = new Box(15, 35, sofa.getHeight());
-        armRight.setTranslateX(sofa.getWidth()/2 - 7.5);
-        armRight.setTranslateY(-27.5);
-        armRight.setMaterial(materials.get("fabric"));
-        group.getChildren().add(armRight);
+    private void createSofa(MeshBuilder builder, Furniture sofa) {
+        builder.useTexCoord(FABRIC);
+        builder.addBox(0, -12.5, 0, sofa.getWidth(), 25, sofa.getHeight() - 10);
+        builder.addBox(0, -35, sofa.getHeight()/2 - 5, sofa.getWidth(), 35, 10);
+        builder.addBox(-sofa.getWidth()/2 + 7.5, -27.5, 0, 15, 35, sofa.getHeight());
+        builder.addBox(sofa.getWidth()/2 - 7.5, -27.5, 0, 15, 35, sofa.getHeight());
 
+        builder.useTexCoord(WOOD);
         for (int i = -1; i <= 1; i += 2) {
             for (int j = -1; j <= 1; j += 2) {
-                Cylinder leg = new Cylinder(2.5, 10);
-                leg.setTranslateX(i * (sofa.getWidth()/2 - 10));
-                leg.setTranslateY(10);
-                leg.setTranslateZ(j * (sofa.getHeight()/2 - 10));
-                leg.setMaterial(materials.get("wood"));
-                group.getChildren().add(leg);
+                builder.addCylinder(i * (sofa.getWidth()/2 - 10), 10, j * (sofa.getHeight()/2 - 10),
+                        2.5, 10, LEG_DIVISIONS);
             }
         }
     }
 
-    private void createTable(Group group, Furniture table) {
-        Cylinder top = new Cylinder(table.getWidth()/2 - 5, 5);
-        top.setMaterial(materials.get("wood"));
-        top.setTranslateY(-table.getHeight()/2);
-        group.getChildren().add(top);
+    private void createTable(MeshBuilder builder, Furniture table) {
+        builder.useTexCoord(WOOD);
+        builder.addCylinder(0, -table.getHeight()/2, 0, table.getWidth()/2 - 5, 5, TOP_DIVISIONS);
 
         int legCount = 4;
         for (int i = 0; i < legCount; i++) {
             double angle = 2 * Math.PI * i / legCount;
             double x = Math.cos(angle) * (table.getWidth()/3);
             double z = Math.sin(angle) * (table.getWidth()/3);
-
-            Cylinder leg = new Cylinder(3, table.getHeight() - 10);
-            leg.setMaterial(materials.get("wood"));
-            leg.setTranslateX(x);
-            leg.setTranslateY(5);
-            leg.setTranslateZ(z);
-            group.getChildren().add(leg);
+            builder.addCylinder(x, 5, z, 3, table.getHeight() - 10, LEG_DIVISIONS);
         }
     }
 
-    private void createChair(Group group, Furniture chair) {
-        Box seat = new Box(chair.getWidth(), 5, chair.getHeight());
-        seat.setMaterial(materials.get("wood"));
-        seat.setTranslateY(-chair.getHeight()/2);
-        group.getChildren().add(seat);
-
-        Box back = new Box(chair.getWidth(), chair.getHeight(), 5);
-        back.setMaterial(materials.get("wood"));
-        back.setTranslateY(-chair.getHeight());
-        back.setTranslateZ(chair.getHeight()/2 - 2.5);
-        group.getChildren().add(back);
+    private void createChair(MeshBuilder builder, Furniture chair) {
+        builder.useTexCoord(WOOD);
+        builder.addBox(0, -chair.getHeight()/2, 0, chair.getWidth(), 5, chair.getHeight());
+        builder.addBox(0, -chair.getHeight(), chair.getHeight()/2 - 2.5, chair.getWidth(), chair.getHeight(), 5);
 
         double legOffset = chair.getWidth()/3;
         for (int i = -1; i <= 1; i += 2) {
             for (int j = -1; j <= 1; j += 2) {
-                Cylinder leg = new Cylinder(1.5, chair.getHeight() - 5);
-                leg.setMaterial(materials.get("wood"));
-                leg.setTranslateX(i * legOffset);
-                leg.setTranslateY(5);
-                leg.setTranslateZ(j * (chair.getHeight()/2 - 5));
-                group.getChildren().add(leg);
+                builder.addCylinder(i * legOffset, 5, j * (chair.getHeight()/2 - 5),
+                        1.5, chair.getHeight() - 5, LEG_DIVISIONS);
             }
         }
     }
 
-    private void createCabinet(Group group, Furniture cabinet) {
-        Box body = new Box(cabinet.getWidth(), cabinet.getHeight(), cabinet.getHeight());
-        body.setMaterial(materials.get("wood"));
-        body.setTranslateY(-cabinet.getHeight()/2);
-        group.getChildren().add(body);
+    private void createCabinet(MeshBuilder builder, Furniture cabinet) {
+        builder.useTexCoord(WOOD);
+        builder.addBox(0, -cabinet.getHeight()/2, 0, cabinet.getWidth(), cabinet.getHeight(), cabinet.getHeight());
 
         int drawerCount = 3;
         double drawerHeight = cabinet.getHeight() / (drawerCount + 1);
         for (int i = 0; i < drawerCount; i++) {
-            Box drawer = new Box(cabinet.getWidth() - 10, drawerHeight - 5, cabinet.getHeight() - 5);
-            drawer.setMaterial(materials.get("wood"));
-            drawer.setTranslateY(-cabinet.getHeight() + (i + 0.5) * drawerHeight);
-            drawer.setTranslateZ(2.5);
-            group.getChildren().add(drawer);
-
-            Sphere handle = new Sphere(2.5);
-            handle.setMaterial(materials.get("metal"));
-            handle.setTranslateX(cabinet.getWidth()/2 - 8);
-            handle.setTranslateY(-cabinet.getHeight() + (i + 0.5) * drawerHeight);
-            handle.setTranslateZ(cabinet.getHeight()/2 - 2);
-            group.getChildren().add(handle);
+            double drawerY = -cabinet.getHeight() + (i + 0.5) * drawerHeight;
+
+            builder.useTexCoord(WOOD);
+            builder.addBox(0, drawerY, 2.5, cabinet.getWidth() - 10, drawerHeight - 5, cabinet.getHeight() - 5);
+
+            builder.useTexCoord(METAL);
+            builder.addSphere(cabinet.getWidth()/2 - 8, drawerY, cabinet.getHeight()/2 - 2, 2.5, HANDLE_DIVISIONS);
         }
     }
 
-    private void createDesk(Group group, Furniture desk) {
-        Box top = new Box(desk.getWidth(), 5, desk.getHeight());
-        top.setMaterial(materials.get("wood"));
-        top.setTranslateY(-desk.getHeight()/2);
-        group.getChildren().add(top);
+    private void createDesk(MeshBuilder builder, Furniture desk) {
+        builder.useTexCoord(WOOD);
+        builder.addBox(0, -desk.getHeight()/2, 0, desk.getWidth(), 5, desk.getHeight());
 
         for (int i = -1; i <= 1; i += 2) {
-            Cylinder leg = new Cylinder(3, desk.getHeight() - 10);
-            leg.setMaterial(materials.get("wood"));
-            leg.setTranslateX(i * (desk.getWidth()/2 - 10));
-            leg.setTranslateY(5);
-            leg.setTranslateZ(desk.getHeight()/2 - 15);
-            group.getChildren().add(leg);
+            builder.addCylinder(i * (desk.getWidth()/2 - 10), 5, desk.getHeight()/2 - 15,
+                    3, desk.getHeight() - 10, LEG_DIVISIONS);
         }
 
-        Box panel = new Box(10, desk.getHeight() - 20, desk.getHeight() - 30);
-        panel.setMaterial(materials.get("wood"));
-        panel.setTranslateX(-desk.getWidth()/2 + 5);
-        panel.setTranslateY(-desk.getHeight()/2 + 10);
-        group.getChildren().add(panel);
+        builder.addBox(-desk.getWidth()/2 + 5, -desk.getHeight()/2 + 10, 0,
+                10, desk.getHeight() - 20, desk.getHeight() - 30);
     }
 
-    private void addStructure(Structure structure) {
-        double centerX = 300;
-        double centerZ = 200;
-
+    private Node createStructure(Structure structure) {
+        Node structure3D;
         if ("Roof".equals(structure.getName())) {
             Cylinder pyramid = new Cylinder(structure.getWidth()/2, 80, 4);
             pyramid.setRotationAxis(Rotate.X_AXIS);
             pyramid.setRotate(90);
             pyramid.setMaterial(materials.get("wood"));
-            pyramid.setTranslateX(structure.getX() + structure.getWidth()/2 - centerX);
             pyramid.setTranslateY(floorLevel - roomHeight - 40);
-            pyramid.setTranslateZ(structure.getY() + structure.getHeight()/2 - centerZ);
-            pyramid.setUserData("structure");
-            sceneRoot.getChildren().add(pyramid);
+            structure3D = pyramid;
+        } else {
+            Box slab = new Box(structure.getWidth(), 20, structure.getHeight());
+            slab.setMaterial(materials.get("wood"));
+            slab.setTranslateY(floorLevel - 10);
+            structure3D = slab;
+        }
+        structure3D.setUserData("structure");
+        positionStructure(structure3D, structure);
+        return structure3D;
+    }
+
+    private void positionStructure(Node node, Structure structure) {
+        double centerX = 300;
+        double centerZ = 200;
+
+        if ("Roof".equals(structure.getName())) {
+            node.setTranslateX(structure.getX() + structure.getWidth()/2 - centerX);
+            node.setTranslateZ(structure.getY() + structure.getHeight()/2 - centerZ);
         } else {
-            Box structure3D = new Box(structure.getWidth(), 20, structure.getHeight());
-            structure3D.setMaterial(materials.get("wood"));
-            structure3D.setTranslateX(structure.getX() - centerX);
-            structure3D.setTranslateY(floorLevel - 10);
-            structure3D.setTranslateZ(structure.getY() - centerZ);
-            structure3D.setUserData("structure");
-            sceneRoot.getChildren().add(structure3D);
+            node.setTranslateX(structure.getX() - centerX);
+            node.setTranslateZ(structure.getY() - centerZ);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package autohome;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous usage log. Any thread can record an event by claiming one of a
+ * fixed set of preallocated slots in a lock-free ring buffer and copying the
+ * event's fields into it, without allocating. A single background thread
+ * drains the published slots in batches and appends them as JSON lines to
+ * {@code usage.log}, rolling it over to {@code usage.log.1} etc. when it grows
+ * too large. If the buffer is full the event is dropped and counted.
+ */
+public class UsageLog {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_MAX_FILE_BYTES = 5L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SHUTDOWN_WAIT_MILLIS = 2000;
+    private static final String FILE_NAME = "usage.log";
+
+    /** One preallocated event; {@code sequence} is written last to publish it. */
+    private static final class Slot {
+        volatile long sequence;
+        long timestamp;
+        String user;
+        String role;
+        String action;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean running = true;
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Thread consumer;
+    private final StringBuilder batch = new StringBuilder(16 * 1024);
+    private OutputStream out;
+    private long fileBytes;
+
+    public UsageLog(Path directory) {
+        this(directory, DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /** The capacity is rounded up to a power of two. */
+    public UsageLog(Path directory, int capacity, long maxFileBytes, int maxFiles) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            // Unpublished until the producer of sequence i writes it
+            slots[i].sequence = i - size;
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+
+        consumer = new Thread(this::drain, "usage-log");
+        consumer.setDaemon(true);
+        consumer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "usage-log-shutdown"));
+    }
+
+    /** Queues an event; returns false if the buffer was full and the event was dropped. */
+    public boolean log(String user, String role, String action) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestamp = System.currentTimeMillis();
+        slot.user = user;
+        slot.role = role;
+        slot.action = action;
+        slot.sequence = sequence;
+        return true;
+    }
+
+    /** Number of events dropped because the consumer fell a full buffer behind. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Writes out everything already queued and stops the consumer. */
+    public void close() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(SHUTDOWN_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        long next = 0;
+        while (true) {
+            int count = 0;
+            while (count < MAX_BATCH) {
+                Slot slot = slots[(int) next & mask];
+                if (slot.sequence != next) break;
+
+                appendEvent(slot);
+                slot.user = null;
+                slot.role = null;
+                slot.action = null;
+                consumed = ++next;
+                count++;
+            }
+
+            if (count > 0) {
+                writeBatch();
+            } else if (!running && claimed.get() == next) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        closeFile();
+    }
+
+    private void appendEvent(Slot slot) {
+        batch.append("{\"time\":\"");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(slot.timestamp), batch);
+        batch.append("\",\"user\":");
+        appendString(slot.user);
+        batch.append(",\"role\":");
+        appendString(slot.role);
+        batch.append(",\"action\":");
+        appendString(slot.action);
+        batch.append("}\n");
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            batch.append("null");
+            return;
+        }
+        batch.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    batch.append("\\\"");
+                    break;
+                case '\\':
+                    batch.append("\\\\");
+                    break;
+                case '\n':
+                    batch.append("\\n");
+                    break;
+                case '\r':
+                    batch.append("\\r");
+                    break;
+                case '\t':
+                    batch.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        batch.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        batch.append(c);
+                    }
+            }
+        }
+        batch.append('"');
+    }
+
+    private void writeBatch() {
+        byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        batch.setLength(0);
+        try {
+            if (out == null || fileBytes >= maxFileBytes) {
+                openFile();
+            }
+            out.write(bytes);
+            out.flush();
+            fileBytes += bytes.length;
+        } catch (IOException e) {
+            // Drop the batch; the next one retries with a fresh file
+            e.printStackTrace();
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        closeFile();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_NAME);
+        if (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            roll();
+        }
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true));
+        fileBytes = Files.size(file);
+    }
+
+    /** Shifts usage.log to usage.log.1, usage.log.1 to usage.log.2, and so on, dropping the oldest. */
+    private void roll() throws IOException {
+        if (maxFiles <= 1) {
+            Files.deleteIfExists(directory.resolve(FILE_NAME));
+            return;
+        }
+        Files.deleteIfExists(directory.resolve(FILE_NAME + "." + (maxFiles - 1)));
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            Path source = directory.resolve(i == 0 ? FILE_NAME : FILE_NAME + "." + i);
+            if (Files.exists(source)) {
+                Files.move(source, directory.resolve(FILE_NAME + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        out = null;
+    }
+}
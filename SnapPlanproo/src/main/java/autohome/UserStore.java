@@ -0,0 +1,21 @@
+package autohome;
+
+import java.io.IOException;
+
+/**
+ * Where user accounts live. Implementations may be slow (hashing, disk,
+ * network), so callers on the FX thread go through {@link DataManager}, which
+ * runs them in the background.
+ */
+public interface UserStore {
+    /** Returns the user's role if the password is correct, otherwise null. */
+    String authenticate(String username, char[] password) throws IOException;
+
+    /** Returns the user's role, or null if there is no such user. */
+    String getRole(String username) throws IOException;
+
+    /** Creates the user, or replaces the password and role of an existing one. */
+    void addUser(String username, char[] password, String role) throws IOException;
+
+    boolean isEmpty() throws IOException;
+}
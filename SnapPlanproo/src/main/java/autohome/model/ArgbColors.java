@@ -0,0 +1,34 @@
+package autohome.model;
+
+import javafx.scene.paint.Color;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts colors to and from packed 32-bit ARGB. Decoded colors are shared,
+ * and fully transparent decodes to {@link Color#TRANSPARENT} itself because the
+ * canvas compares against that constant by identity.
+ */
+public final class ArgbColors {
+    private static final Map<Integer, Color> CACHE = new HashMap<>();
+
+    private ArgbColors() {
+    }
+
+    public static int toArgb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24 |
+                (int) Math.round(color.getRed() * 255) << 16 |
+                (int) Math.round(color.getGreen() * 255) << 8 |
+                (int) Math.round(color.getBlue() * 255);
+    }
+
+    public static synchronized Color fromArgb(int argb) {
+        if (argb == 0) return Color.TRANSPARENT;
+        return CACHE.computeIfAbsent(argb, value -> Color.rgb(
+                value >> 16 & 0xff,
+                value >> 8 & 0xff,
+                value & 0xff,
+                (value >>> 24) / 255.0));
+    }
+}
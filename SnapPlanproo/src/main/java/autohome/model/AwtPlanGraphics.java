@@ -0,0 +1,67 @@
+package autohome.model;
+
+import javafx.scene.paint.Color;
+
+import java.awt.BasicStroke;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Draws through Java2D, which needs no JavaFX toolkit, for headless rendering.
+ * Strokes are centered on the rectangle edge, as on a JavaFX canvas.
+ */
+public class AwtPlanGraphics implements PlanGraphics {
+    /** Closest Java2D match for the canvas default font. */
+    public static final Font DEFAULT_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 13);
+
+    private final Graphics2D g;
+    private final Rectangle2D.Double rect = new Rectangle2D.Double();
+    private java.awt.Color fill = java.awt.Color.BLACK;
+    private java.awt.Color stroke = java.awt.Color.BLACK;
+
+    public AwtPlanGraphics(Graphics2D g) {
+        this.g = g;
+        g.setFont(DEFAULT_FONT);
+        g.setStroke(new BasicStroke(1));
+    }
+
+    @Override
+    public void setFill(Color color) {
+        fill = toAwt(color);
+    }
+
+    @Override
+    public void setStroke(Color color) {
+        stroke = toAwt(color);
+    }
+
+    @Override
+    public void setLineWidth(double width) {
+        g.setStroke(new BasicStroke((float) width));
+    }
+
+    @Override
+    public void fillRect(double x, double y, double width, double height) {
+        rect.setRect(x, y, width, height);
+        g.setColor(fill);
+        g.fill(rect);
+    }
+
+    @Override
+    public void strokeRect(double x, double y, double width, double height) {
+        rect.setRect(x, y, width, height);
+        g.setColor(stroke);
+        g.draw(rect);
+    }
+
+    @Override
+    public void fillText(String text, double x, double y) {
+        g.setColor(fill);
+        g.drawString(text, (float) x, (float) y);
+    }
+
+    private static java.awt.Color toAwt(Color color) {
+        return new java.awt.Color(ArgbColors.toArgb(color), true);
+    }
+}
@@ -1,5 +1,8 @@
 package autohome.model;
 
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.WritableImage;
@@ -7,178 +10,795 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class BlueprintCanvas extends Canvas {
+    private static final int STRUCTURE_LAYER = 0;
+    private static final int ROOM_LAYER = 1;
+    private static final int FURNITURE_LAYER = 2;
+    private static final int NO_LAYER = -1;
+    private static final double CONFLICT_STROKE_WIDTH = 3;
+    private static final Histogram REPAINT_TIME = Metrics.histogram("canvas.repaint");
+    private static final Histogram DRAG_TIME = Metrics.histogram("canvas.drag");
+    private static final Counter DRAG_EVENTS = Metrics.counter("canvas.dragEvents");
+
     private final List<Room> rooms = new ArrayList<>();
     private final List<Furniture> furniture = new ArrayList<>();
     private final List<Structure> structures = new ArrayList<>();
+    private final SpatialIndex<Room> roomIndex = new SpatialIndex<>();
+    private final SpatialIndex<Furniture> furnitureIndex = new SpatialIndex<>();
+    private final SpatialIndex<Structure> structureIndex = new SpatialIndex<>();
+    private final BlueprintRenderer renderer;
+    private final List<EditListener> editListeners = new ArrayList<>();
+    private final EditHistory history = new EditHistory();
+    private boolean replaying;
+    private Set<DraggableItem> conflicts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Set<DraggableItem> nextConflicts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<DraggableItem> probeConflicts = Collections.newSetFromMap(new IdentityHashMap<>());
+    // What the dragged furniture conflicts with where it is now, starting from the press
+    private final Set<DraggableItem> heldConflicts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean blockCollisions;
+    private final SnapEngine snapEngine = new SnapEngine();
+    private boolean snapSuspended;
+    private double labelOverflowX, labelOverflowY;
+    private final Layer[] layers = {
+            new Layer(STRUCTURE_LAYER), new Layer(ROOM_LAYER), new Layer(FURNITURE_LAYER)
+    };
+    private final SnapshotParameters layerSnapshotParameters = new SnapshotParameters();
+    private int activeLayer = NO_LAYER;
+    private Rectangle2D dragStartBounds;
     private DraggableItem selectedItem;
     private double lastX, lastY;
     private double dragStartX, dragStartY;
+    private double pendingDeltaX, pendingDeltaY;
+    private double dragX, dragY;
+    private double pressItemX, pressItemY;
+    private boolean dragPending;
+    private long skippedRepaints;
+    private final AnimationTimer repaintTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyPendingDrag();
+            stop();
+        }
+    };
 
     public BlueprintCanvas(double width, double height, int houseWidth, int houseHeight) {
         super(width, height);
         setStyle("-fx-background-color: white; -fx-border-color: #ccc; -fx-border-width: 1;");
 
-        Structure outline = new Structure("House Outline", 10, 10, width - 20, height - 20, Color.TRANSPARENT);
-        outline.setStroke(Color.BLACK);
-        outline.setStrokeWidth(2);
-        structures.add(outline);
+        renderer = new BlueprintRenderer(getGraphicsContext2D().getFont());
+        layerSnapshotParameters.setFill(Color.TRANSPARENT);
+        addOutline();
 
         setOnMousePressed(this::handleMousePressed);
         setOnMouseDragged(this::handleMouseDragged);
         setOnMouseReleased(this::handleMouseReleased);
+        widthProperty().addListener((obs, oldValue, newValue) -> invalidateAll());
+        heightProperty().addListener((obs, oldValue, newValue) -> invalidateAll());
 
         draw();
     }
 
     public void addRoom(Room room) {
         rooms.add(room);
-        draw();
+        roomIndex.insert(room);
+        snapEngine.add(room);
+        trackLabelOverflow(room);
+        invalidate(ROOM_LAYER, renderer.paintBounds(room));
+        for (EditListener listener : editListeners) {
+            listener.itemAdded(room);
+        }
+        record(new EditHistory.Add(room));
     }
 
     public void addFurniture(Furniture item) {
         furniture.add(item);
-        draw();
+        furnitureIndex.insert(item);
+        snapEngine.add(item);
+        trackLabelOverflow(item);
+        invalidate(FURNITURE_LAYER, renderer.paintBounds(item));
+        for (EditListener listener : editListeners) {
+            listener.itemAdded(item);
+        }
+        record(new EditHistory.Add(item));
     }
 
     public void addStructure(Structure structure) {
         structures.add(structure);
-        draw();
+        structureIndex.insert(structure);
+        snapEngine.add(structure);
+        trackLabelOverflow(structure);
+        invalidate(STRUCTURE_LAYER, renderer.paintBounds(structure));
+        for (EditListener listener : editListeners) {
+            listener.itemAdded(structure);
+        }
+        record(new EditHistory.Add(structure));
     }
 
     public void clearAll() {
+        Plan before = toPlan();
+        clearItems();
+        for (EditListener listener : editListeners) {
+            listener.cleared();
+        }
+
+        addOutline();
+
+        invalidateAll();
+        record(new EditHistory.Replace(before, toPlan()));
+    }
+
+    /** Replaces the whole blueprint with the given plan, keeping its paint order. */
+    public void loadPlan(Plan plan) {
+        Plan before = toPlan();
+        clearItems();
+
+        for (Structure structure : plan.getStructures()) {
+            structures.add(structure);
+            structureIndex.insert(structure);
+            trackLabelOverflow(structure);
+        }
+        for (Room room : plan.getRooms()) {
+            rooms.add(room);
+            roomIndex.insert(room);
+            trackLabelOverflow(room);
+        }
+        for (Furniture item : plan.getFurniture()) {
+            furniture.add(item);
+            furnitureIndex.insert(item);
+            trackLabelOverflow(item);
+        }
+        snapEngine.addAll(structures);
+        snapEngine.addAll(rooms);
+        snapEngine.addAll(furniture);
+
+        invalidateAll();
+        for (EditListener listener : editListeners) {
+            listener.planLoaded(plan);
+        }
+        record(new EditHistory.Replace(before, toPlan()));
+    }
+
+    /** Empties every layer and forgets any selection, drag or conflict highlight. */
+    private void clearItems() {
         rooms.clear();
         furniture.clear();
         structures.clear();
+        roomIndex.clear();
+        furnitureIndex.clear();
+        structureIndex.clear();
+        snapEngine.clear();
+        labelOverflowX = 0;
+        labelOverflowY = 0;
+        selectedItem = null;
+        dragPending = false;
+        pendingDeltaX = 0;
+        pendingDeltaY = 0;
+        activeLayer = NO_LAYER;
+        conflicts.clear();
+        heldConflicts.clear();
+    }
 
+    /** Adds an item to the layer matching its type. */
+    public void addItem(DraggableItem item) {
+        switch (item.getKind()) {
+            case ROOM:
+                addRoom((Room) item);
+                break;
+            case FURNITURE:
+                addFurniture((Furniture) item);
+                break;
+            default:
+                addStructure((Structure) item);
+        }
+    }
+
+    /** Takes an item off the blueprint; does nothing if it is not on it. */
+    public void removeItem(DraggableItem item) {
+        int index = paintOrder(item).indexOf(item);
+        if (index < 0) return;
+
+        Rectangle2D bounds = renderer.paintBounds(item);
+        paintOrder(item).remove(index);
+        if (item instanceof Room) {
+            roomIndex.remove((Room) item);
+        } else if (item instanceof Furniture) {
+            furnitureIndex.remove((Furniture) item);
+        } else {
+            structureIndex.remove((Structure) item);
+        }
+        snapEngine.remove(item);
+        conflicts.remove(item);
+        heldConflicts.remove(item);
+        invalidate(layerOf(item), bounds);
+        for (EditListener listener : editListeners) {
+            listener.itemRemoved(item);
+        }
+        record(new EditHistory.Remove(item, index));
+    }
+
+    /** Moves an item to a new position as one undoable step. */
+    public void moveItem(DraggableItem item, double x, double y) {
+        double fromX = item.getX();
+        double fromY = item.getY();
+        if (x == fromX && y == fromY) return;
+
+        Rectangle2D before = renderer.paintBounds(item);
+        item.setPosition(x, y);
+        reindex(item);
+        snapEngine.update(item);
+        invalidate(layerOf(item), union(before, renderer.paintBounds(item)));
+        for (EditListener listener : editListeners) {
+            listener.itemMoved(item);
+        }
+        record(new EditHistory.Move(item, fromX, fromY, x, y));
+    }
+
+    /** Moves an item to the given position in its layer's paint order. */
+    void reorder(DraggableItem item, int index) {
+        int from = paintOrder(item).indexOf(item);
+        if (from < 0 || from == index) return;
+
+        if (item instanceof Room) {
+            rooms.remove(from);
+            rooms.add(index, (Room) item);
+            roomIndex.reorder(rooms);
+        } else if (item instanceof Furniture) {
+            furniture.remove(from);
+            furniture.add(index, (Furniture) item);
+            furnitureIndex.reorder(furniture);
+        } else {
+            structures.remove(from);
+            structures.add(index, (Structure) item);
+            structureIndex.reorder(structures);
+        }
+        invalidate(layerOf(item), renderer.paintBounds(item));
+        for (EditListener listener : editListeners) {
+            listener.itemReordered(item, index);
+        }
+        record(new EditHistory.Reorder(item, from, index));
+    }
+
+    /** Reverts the most recent edit; returns false if there was nothing to undo or a drag is in progress. */
+    public boolean undo() {
+        if (selectedItem != null) return false;
+        EditHistory.Edit edit = history.takeUndo();
+        if (edit == null) return false;
+
+        replaying = true;
+        try {
+            edit.undo(this);
+        } finally {
+            replaying = false;
+        }
+        history.undone(edit);
+        return true;
+    }
+
+    /** Re-applies the most recently undone edit; returns false if there was none. */
+    public boolean redo() {
+        if (selectedItem != null) return false;
+        EditHistory.Edit edit = history.takeRedo();
+        if (edit == null) return false;
+
+        replaying = true;
+        try {
+            edit.redo(this);
+        } finally {
+            replaying = false;
+        }
+        history.redone(edit);
+        return true;
+    }
+
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    private void record(EditHistory.Edit edit) {
+        if (!replaying) {
+            history.record(edit);
+        }
+    }
+
+    public void addEditListener(EditListener listener) {
+        editListeners.add(listener);
+    }
+
+    public void removeEditListener(EditListener listener) {
+        editListeners.remove(listener);
+    }
+
+    /** Returns the current contents as a plan; the items themselves are shared. */
+    public Plan toPlan() {
+        Plan plan = new Plan(getWidth(), getHeight());
+        plan.getStructures().addAll(structures);
+        plan.getRooms().addAll(rooms);
+        plan.getFurniture().addAll(furniture);
+        return plan;
+    }
+
+    private void addOutline() {
         Structure outline = new Structure("House Outline", 10, 10, getWidth() - 20, getHeight() - 20, Color.TRANSPARENT);
         outline.setStroke(Color.BLACK);
         outline.setStrokeWidth(2);
         structures.add(outline);
+        structureIndex.insert(outline);
+        snapEngine.add(outline);
+        trackLabelOverflow(outline);
+        for (EditListener listener : editListeners) {
+            listener.itemAdded(outline);
+        }
+    }
 
-        draw();
+    /** Returns the topmost item at the point: furniture over rooms over structures. */
+    public DraggableItem itemAt(double x, double y) {
+        DraggableItem item = furnitureIndex.topmostAt(x, y);
+        if (item == null) {
+            item = roomIndex.topmostAt(x, y);
+        }
+        if (item == null) {
+            item = structureIndex.topmostAt(x, y);
+        }
+        return item;
+    }
+
+    /** Returns the items intersecting the region, in paint order. */
+    public List<DraggableItem> itemsIn(double x, double y, double width, double height) {
+        List<DraggableItem> result = new ArrayList<>(structureIndex.query(x, y, width, height));
+        result.addAll(roomIndex.query(x, y, width, height));
+        result.addAll(furnitureIndex.query(x, y, width, height));
+        return result;
     }
 
     public WritableImage snapshot() {
+        applyPendingDrag();
         return snapshot(null, null);
     }
 
     private void draw() {
+        repaint(0, 0, getWidth(), getHeight());
+    }
+
+    private void invalidateAll() {
+        for (Layer layer : layers) {
+            layer.invalidateAll();
+        }
+        draw();
+    }
+
+    /** Marks part of one layer as changed and recomposites that region. */
+    private void invalidate(int layer, Rectangle2D region) {
+        layers[layer].invalidate(region);
+        repaint(region);
+    }
+
+    /**
+     * Recomposites only the given region. Layers are blitted from their cached
+     * images, except the layer holding a dragged item, whose items in the
+     * region are painted live.
+     */
+    private void repaint(double x, double y, double width, double height) {
+        Rectangle2D clip = clampToCanvas(x, y, width, height);
+        if (clip == null) return;
+
+        long start = System.nanoTime();
         GraphicsContext gc = getGraphicsContext2D();
-        gc.clearRect(0, 0, getWidth(), getHeight());
+        gc.save();
+        clipTo(gc, clip);
 
+        gc.clearRect(clip.getMinX(), clip.getMinY(), clip.getWidth(), clip.getHeight());
         gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, getWidth(), getHeight());
-
-        for (Structure structure : structures) {
-            if (structure.getColor() != Color.TRANSPARENT) {
-                gc.setFill(structure.getColor());
-                gc.fillRect(structure.getX(), structure.getY(), structure.getWidth(), structure.getHeight());
+        gc.fillRect(clip.getMinX(), clip.getMinY(), clip.getWidth(), clip.getHeight());
+
+        for (Layer layer : layers) {
+            if (layer.index == activeLayer) {
+                drawLayer(gc, layer.index, clip);
+            } else {
+                gc.drawImage(layer.image(),
+                        clip.getMinX(), clip.getMinY(), clip.getWidth(), clip.getHeight(),
+                        clip.getMinX(), clip.getMinY(), clip.getWidth(), clip.getHeight());
             }
+        }
+        if (!conflicts.isEmpty()) {
+            drawConflicts(gc, clip);
+        }
+
+        gc.restore();
+        REPAINT_TIME.recordSince(start);
+    }
 
-            if (structure.getStroke() != null) {
-                gc.setStroke(structure.getStroke());
-                gc.setLineWidth(structure.getStrokeWidth());
-                gc.strokeRect(structure.getX(), structure.getY(), structure.getWidth(), structure.getHeight());
+    private void drawConflicts(GraphicsContext gc, Rectangle2D clip) {
+        gc.setStroke(Color.RED);
+        gc.setLineWidth(CONFLICT_STROKE_WIDTH);
+        for (DraggableItem item : conflicts) {
+            if (clip.intersects(item.getX(), item.getY(), item.getWidth(), item.getHeight())) {
+                gc.strokeRect(item.getX(), item.getY(), item.getWidth(), item.getHeight());
             }
+        }
+    }
+
+    private void repaint(Rectangle2D region) {
+        repaint(region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight());
+    }
+
+    /** Draws the items of one layer whose painted area reaches into the clip. */
+    private void drawLayer(GraphicsContext gc, int layer, Rectangle2D clip) {
+        double x = clip.getMinX() - labelOverflowX - BlueprintRenderer.STROKE_PADDING;
+        double y = clip.getMinY() - labelOverflowY - BlueprintRenderer.STROKE_PADDING;
+        double width = clip.getWidth() + labelOverflowX + 2 * BlueprintRenderer.STROKE_PADDING;
+        double height = clip.getHeight() + labelOverflowY + 2 * BlueprintRenderer.STROKE_PADDING;
+
+        List<? extends DraggableItem> items;
+        switch (layer) {
+            case STRUCTURE_LAYER:
+                items = structureIndex.query(x, y, width, height);
+                break;
+            case ROOM_LAYER:
+                items = roomIndex.query(x, y, width, height);
+                break;
+            default:
+                items = furnitureIndex.query(x, y, width, height);
+        }
 
-            gc.setFill(Color.BLACK);
-            gc.fillText(structure.getName(), structure.getX() + 5, structure.getY() + 15);
+        for (DraggableItem item : items) {
+            renderer.drawItem(gc, item);
         }
+    }
+
+    private Rectangle2D clampToCanvas(double x, double y, double width, double height) {
+        double minX = Math.max(0, Math.floor(x));
+        double minY = Math.max(0, Math.floor(y));
+        double maxX = Math.min(getWidth(), Math.ceil(x + width));
+        double maxY = Math.min(getHeight(), Math.ceil(y + height));
+        if (maxX <= minX || maxY <= minY) return null;
+        return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    private static void clipTo(GraphicsContext gc, Rectangle2D clip) {
+        gc.beginPath();
+        gc.rect(clip.getMinX(), clip.getMinY(), clip.getWidth(), clip.getHeight());
+        gc.clip();
+    }
 
-        for (Room room : rooms) {
-            gc.setFill(room.getColor());
-            gc.fillRect(room.getX(), room.getY(), room.getWidth(), room.getHeight());
-            gc.setStroke(Color.BLACK);
-            gc.strokeRect(room.getX(), room.getY(), room.getWidth(), room.getHeight());
-            gc.setFill(Color.BLACK);
-            gc.fillText(room.getName(), room.getX() + 5, room.getY() + 15);
+    private List<? extends DraggableItem> paintOrder(DraggableItem item) {
+        switch (item.getKind()) {
+            case FURNITURE:
+                return furniture;
+            case ROOM:
+                return rooms;
+            default:
+                return structures;
         }
+    }
 
-        for (Furniture item : furniture) {
-            gc.setFill(item.getColor());
-            gc.fillRect(item.getX(), item.getY(), item.getWidth(), item.getHeight());
-            gc.setStroke(Color.BLACK);
-            gc.strokeRect(item.getX(), item.getY(), item.getWidth(), item.getHeight());
-            gc.setFill(Color.BLACK);
-            gc.fillText(item.getType(), item.getX() + 5, item.getY() + 15);
+    private static int layerOf(DraggableItem item) {
+        switch (item.getKind()) {
+            case FURNITURE:
+                return FURNITURE_LAYER;
+            case ROOM:
+                return ROOM_LAYER;
+            default:
+                return STRUCTURE_LAYER;
         }
     }
 
+    private void trackLabelOverflow(DraggableItem item) {
+        labelOverflowX = Math.max(labelOverflowX, 5 + renderer.labelWidth(item) - item.getWidth());
+        labelOverflowY = Math.max(labelOverflowY, BlueprintRenderer.LABEL_BOTTOM - item.getHeight());
+    }
+
     private void handleMousePressed(MouseEvent e) {
         lastX = e.getX();
         lastY = e.getY();
         dragStartX = e.getX();
         dragStartY = e.getY();
-        selectedItem = null;
+        pendingDeltaX = 0;
+        pendingDeltaY = 0;
+        selectedItem = itemAt(e.getX(), e.getY());
+        dragStartBounds = selectedItem != null ? renderer.paintBounds(selectedItem) : null;
+        if (selectedItem == null) return;
+
+        dragX = selectedItem.getX();
+        dragY = selectedItem.getY();
+        pressItemX = dragX;
+        pressItemY = dragY;
+
+        // Remembered for blocking, but only highlighted once the item is dragged
+        heldConflicts.clear();
+        if (selectedItem instanceof Furniture) {
+            collectConflicts((Furniture) selectedItem, dragX, dragY, heldConflicts);
+        }
+    }
+
+    private void handleMouseDragged(MouseEvent e) {
+        if (selectedItem == null) return;
+
+        DRAG_EVENTS.increment();
+        pendingDeltaX += e.getX() - lastX;
+        pendingDeltaY += e.getY() - lastY;
+        lastX = e.getX();
+        lastY = e.getY();
+        snapSuspended = e.isAltDown();
 
-        for (int i = furniture.size() - 1; i >= 0; i--) {
-            Furniture item = furniture.get(i);
-            if (containsPoint(item, e.getX(), e.getY())) {
-                selectedItem = item;
-                return;
+        if (dragPending) {
+            skippedRepaints++;
+        } else {
+            dragPending = true;
+            repaintTimer.start();
+        }
+    }
+
+    /** Applies the drag movement accumulated since the last pulse and repaints once. */
+    private void applyPendingDrag() {
+        if (!dragPending) return;
+        dragPending = false;
+        long start = System.nanoTime();
+
+        if (activeLayer == NO_LAYER) {
+            activeLayer = layerOf(selectedItem);
+        }
+
+        // Track where the pointer wants the item, before snapping or blocking moves it
+        dragX += pendingDeltaX;
+        dragY += pendingDeltaY;
+        pendingDeltaX = 0;
+        pendingDeltaY = 0;
+
+        double x = dragX;
+        double y = dragY;
+        if (snapEngine.isEnabled() && !snapSuspended) {
+            x = snapEngine.snapX(selectedItem, dragX, dragY);
+            y = snapEngine.snapY(selectedItem, dragX, dragY);
+        }
+
+        if (selectedItem instanceof Furniture) {
+            Furniture item = (Furniture) selectedItem;
+            nextConflicts.clear();
+            collectConflicts(item, x, y, nextConflicts);
+            if (blockCollisions && !heldConflicts.containsAll(nextConflicts)) {
+                // Slide along whichever axis adds no new conflict, otherwise stay put
+                if (addsNoConflicts(item, x, item.getY())) {
+                    y = item.getY();
+                } else if (addsNoConflicts(item, item.getX(), y)) {
+                    x = item.getX();
+                } else {
+                    x = item.getX();
+                    y = item.getY();
+                }
+                nextConflicts.clear();
+                collectConflicts(item, x, y, nextConflicts);
             }
+            heldConflicts.clear();
+            heldConflicts.addAll(nextConflicts);
         }
 
-        for (int i = rooms.size() - 1; i >= 0; i--) {
-            Room room = rooms.get(i);
-            if (containsPoint(room, e.getX(), e.getY())) {
-                selectedItem = room;
-                return;
+        if (x != selectedItem.getX() || y != selectedItem.getY()) {
+            Rectangle2D before = renderer.paintBounds(selectedItem);
+            selectedItem.setPosition(x, y);
+            reindex(selectedItem);
+
+            repaint(union(before, renderer.paintBounds(selectedItem)));
+            for (EditListener listener : editListeners) {
+                listener.itemMoved(selectedItem);
             }
         }
+        if (selectedItem instanceof Furniture) {
+            showConflicts();
+        }
+        DRAG_TIME.recordSince(start);
+    }
 
-        for (int i = structures.size() - 1; i >= 0; i--) {
-            Structure structure = structures.get(i);
-            if (containsPoint(structure, e.getX(), e.getY())) {
-                selectedItem = structure;
-                return;
+    /** Snapping settings for drags; holding Alt while dragging bypasses them. */
+    public SnapEngine getSnapEngine() {
+        return snapEngine;
+    }
+
+    /**
+     * When enabled, furniture drags stop short of new overlaps and of leaving
+     * every room. Furniture that already conflicts can still be dragged clear.
+     */
+    public void setBlockCollisions(boolean blockCollisions) {
+        this.blockCollisions = blockCollisions;
+    }
+
+    public boolean isBlockCollisions() {
+        return blockCollisions;
+    }
+
+    /** Items highlighted as conflicting with the furniture being dragged. */
+    public Set<DraggableItem> getConflicts() {
+        return Collections.unmodifiableSet(conflicts);
+    }
+
+    /**
+     * Adds what the furniture would conflict with at (x, y): other furniture it
+     * overlaps, and the item itself if it overlaps anything or no room fully
+     * contains it. Only the item's grid neighbours are examined.
+     */
+    private void collectConflicts(Furniture item, double x, double y, Set<DraggableItem> out) {
+        double width = item.getWidth();
+        double height = item.getHeight();
+        for (Furniture other : furnitureIndex.query(x, y, width, height)) {
+            if (other != item && overlaps(other, x, y, width, height)) {
+                out.add(other);
             }
         }
+
+        boolean inRoom = false;
+        for (Room room : roomIndex.query(x, y, width, height)) {
+            if (x >= room.getX() && y >= room.getY() &&
+                    x + width <= room.getX() + room.getWidth() &&
+                    y + height <= room.getY() + room.getHeight()) {
+                inRoom = true;
+                break;
+            }
+        }
+        if (!inRoom || !out.isEmpty()) {
+            out.add(item);
+        }
     }
 
-    private boolean containsPoint(DraggableItem item, double x, double y) {
-        return x >= item.getX() && x <= item.getX() + item.getWidth() &&
-                y >= item.getY() && y <= item.getY() + item.getHeight();
+    /** Whether moving the furniture to (x, y) conflicts with nothing it does not conflict with already. */
+    private boolean addsNoConflicts(Furniture item, double x, double y) {
+        probeConflicts.clear();
+        collectConflicts(item, x, y, probeConflicts);
+        return heldConflicts.containsAll(probeConflicts);
     }
 
-    private void handleMouseDragged(MouseEvent e) {
-        if (selectedItem == null) return;
+    private static boolean overlaps(DraggableItem item, double x, double y, double width, double height) {
+        return item.getX() < x + width && x < item.getX() + item.getWidth() &&
+                item.getY() < y + height && y < item.getY() + item.getHeight();
+    }
 
-        double deltaX = e.getX() - lastX;
-        double deltaY = e.getY() - lastY;
-        lastX = e.getX();
-        lastY = e.getY();
+    /** Makes {@code nextConflicts} the highlighted set, repainting only items whose state changed. */
+    private void showConflicts() {
+        Set<DraggableItem> previous = conflicts;
+        conflicts = nextConflicts;
+        nextConflicts = previous;
 
-        selectedItem.setPosition(
-                selectedItem.getX() + deltaX,
-                selectedItem.getY() + deltaY
-        );
+        for (DraggableItem item : previous) {
+            if (!conflicts.contains(item)) {
+                repaint(renderer.paintBounds(item));
+            }
+        }
+        for (DraggableItem item : conflicts) {
+            if (!previous.contains(item)) {
+                repaint(renderer.paintBounds(item));
+            }
+        }
+    }
 
-        draw();
+    /** Number of drag events folded into an already scheduled repaint. */
+    public long getSkippedRepaints() {
+        return skippedRepaints;
     }
 
     private void handleMouseReleased(MouseEvent e) {
+        applyPendingDrag();
+        repaintTimer.stop();
+
+        if (activeLayer != NO_LAYER) {
+            layers[activeLayer].invalidate(union(dragStartBounds, renderer.paintBounds(selectedItem)));
+            activeLayer = NO_LAYER;
+        }
+        if (!conflicts.isEmpty()) {
+            nextConflicts.clear();
+            showConflicts();
+        }
+
+        // A short drag both moves and raises the item; both are undone together
+        List<EditHistory.Edit> edits = new ArrayList<>(2);
+        if (selectedItem != null &&
+                (selectedItem.getX() != pressItemX || selectedItem.getY() != pressItemY)) {
+            // The dragged item's own edges are skipped while it moves, so they are re-filed once, here
+            snapEngine.update(selectedItem);
+            edits.add(new EditHistory.Move(selectedItem, pressItemX, pressItemY,
+                    selectedItem.getX(), selectedItem.getY()));
+        }
+
         if (selectedItem != null &&
                 Math.abs(e.getX() - dragStartX) < 5 &&
                 Math.abs(e.getY() - dragStartY) < 5) {
 
+            int from = paintOrder(selectedItem).indexOf(selectedItem);
             if (selectedItem instanceof Structure) {
                 structures.remove(selectedItem);
                 structures.add((Structure) selectedItem);
+                structureIndex.raise((Structure) selectedItem);
             } else if (selectedItem instanceof Room) {
                 rooms.remove(selectedItem);
                 rooms.add((Room) selectedItem);
+                roomIndex.raise((Room) selectedItem);
             } else if (selectedItem instanceof Furniture) {
                 furniture.remove(selectedItem);
                 furniture.add((Furniture) selectedItem);
+                furnitureIndex.raise((Furniture) selectedItem);
+            }
+            invalidate(layerOf(selectedItem), renderer.paintBounds(selectedItem));
+            for (EditListener listener : editListeners) {
+                listener.itemRaised(selectedItem);
             }
+            int top = paintOrder(selectedItem).size() - 1;
+            if (from != top) {
+                edits.add(new EditHistory.Reorder(selectedItem, from, top));
+            }
+        }
+        if (edits.size() == 1) {
+            record(edits.get(0));
+        } else if (edits.size() > 1) {
+            record(new EditHistory.Compound(edits));
         }
 
         selectedItem = null;
-        draw();
+    }
+
+    private static Rectangle2D union(Rectangle2D a, Rectangle2D b) {
+        double minX = Math.min(a.getMinX(), b.getMinX());
+        double minY = Math.min(a.getMinY(), b.getMinY());
+        return new Rectangle2D(minX, minY,
+                Math.max(a.getMaxX(), b.getMaxX()) - minX,
+                Math.max(a.getMaxY(), b.getMaxY()) - minY);
+    }
+
+    private void reindex(DraggableItem item) {
+        if (item instanceof Room) {
+            roomIndex.update((Room) item);
+        } else if (item instanceof Furniture) {
+            furnitureIndex.update((Furniture) item);
+        } else if (item instanceof Structure) {
+            structureIndex.update((Structure) item);
+        }
+    }
+
+    /**
+     * Offscreen cache of one layer. The layer canvas keeps its pixels between
+     * updates, so only the dirty region is repainted before re-snapshotting.
+     */
+    private final class Layer {
+        private final int index;
+        private final Canvas canvas = new Canvas();
+        private WritableImage image;
+        private Rectangle2D dirty;
+
+        private Layer(int index) {
+            this.index = index;
+        }
+
+        void invalidate(Rectangle2D region) {
+            dirty = dirty == null ? region : union(dirty, region);
+        }
+
+        void invalidateAll() {
+            invalidate(new Rectangle2D(0, 0, getWidth(), getHeight()));
+        }
+
+        WritableImage image() {
+            if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+                canvas.setWidth(getWidth());
+                canvas.setHeight(getHeight());
+                image = null;
+                invalidateAll();
+            }
+
+            if (dirty != null) {
+                Rectangle2D clip = clampToCanvas(dirty.getMinX(), dirty.getMinY(), dirty.getWidth(), dirty.getHeight());
+                dirty = null;
+                if (clip != null) {
+                    GraphicsContext gc = canvas.getGraphicsContext2D();
+                    gc.save();
+                    clipTo(gc, clip);
+                    gc.clearRect(clip.getMinX(), clip.getMinY(), clip.getWidth(), clip.getHeight());
+                    drawLayer(gc, index, clip);
+                    gc.restore();
+                }
+                image = canvas.snapshot(layerSnapshotParameters, image);
+            }
+            return image;
+        }
     }
 
     public List<Room> getRooms() {
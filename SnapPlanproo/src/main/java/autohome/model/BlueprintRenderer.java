@@ -0,0 +1,130 @@
+package autohome.model;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Draws plan items the way the blueprint shows them. Shared by the canvas, the
+ * exporters and the headless batch renderer so every output looks the same.
+ * Drawing itself only needs a {@link PlanGraphics}; label measuring uses JavaFX.
+ */
+public class BlueprintRenderer {
+    public static final double STROKE_PADDING = 2;
+    public static final double LABEL_BOTTOM = 20;
+    static final double ITEM_STROKE_WIDTH = 2;
+
+    private final Font font;
+    private final Map<String, Double> labelWidths = new HashMap<>();
+    private FxPlanGraphics fxGraphics;
+
+    public BlueprintRenderer(Font font) {
+        this.font = font;
+    }
+
+    public void drawItem(GraphicsContext gc, DraggableItem item) {
+        if (fxGraphics == null || fxGraphics.getGraphicsContext() != gc) {
+            fxGraphics = new FxPlanGraphics(gc);
+        }
+        draw(fxGraphics, item);
+    }
+
+    public static void draw(PlanGraphics g, DraggableItem item) {
+        switch (item.getKind()) {
+            case STRUCTURE:
+                drawStructure(g, (Structure) item);
+                break;
+            case ROOM:
+                drawRoom(g, (Room) item);
+                break;
+            default:
+                drawFurniture(g, (Furniture) item);
+        }
+    }
+
+    /** Draws every item of the plan in paint order over a white background. */
+    public static void drawPlan(PlanGraphics g, Plan plan) {
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, plan.getWidth(), plan.getHeight());
+        for (Structure structure : plan.getStructures()) {
+            drawStructure(g, structure);
+        }
+        for (Room room : plan.getRooms()) {
+            drawRoom(g, room);
+        }
+        for (Furniture item : plan.getFurniture()) {
+            drawFurniture(g, item);
+        }
+    }
+
+    private static void drawStructure(PlanGraphics g, Structure structure) {
+        if (structure.getColor() != Color.TRANSPARENT) {
+            g.setFill(structure.getColor());
+            g.fillRect(structure.getX(), structure.getY(), structure.getWidth(), structure.getHeight());
+        }
+
+        if (structure.getStroke() != null) {
+            g.setStroke(structure.getStroke());
+            g.setLineWidth(structure.getStrokeWidth());
+            g.strokeRect(structure.getX(), structure.getY(), structure.getWidth(), structure.getHeight());
+        }
+
+        g.setFill(Color.BLACK);
+        g.fillText(structure.getName(), structure.getX() + 5, structure.getY() + 15);
+    }
+
+    private static void drawRoom(PlanGraphics g, Room room) {
+        g.setFill(room.getColor());
+        g.fillRect(room.getX(), room.getY(), room.getWidth(), room.getHeight());
+        g.setStroke(Color.BLACK);
+        g.setLineWidth(ITEM_STROKE_WIDTH);
+        g.strokeRect(room.getX(), room.getY(), room.getWidth(), room.getHeight());
+        g.setFill(Color.BLACK);
+        g.fillText(room.getName(), room.getX() + 5, room.getY() + 15);
+    }
+
+    private static void drawFurniture(PlanGraphics g, Furniture item) {
+        g.setFill(item.getColor());
+        g.fillRect(item.getX(), item.getY(), item.getWidth(), item.getHeight());
+        g.setStroke(Color.BLACK);
+        g.setLineWidth(ITEM_STROKE_WIDTH);
+        g.strokeRect(item.getX(), item.getY(), item.getWidth(), item.getHeight());
+        g.setFill(Color.BLACK);
+        g.fillText(item.getType(), item.getX() + 5, item.getY() + 15);
+    }
+
+    /** Area touched when painting the item: bounds, stroke and label text. */
+    public Rectangle2D paintBounds(DraggableItem item) {
+        double labelRight = 5 + labelWidth(item);
+        double width = Math.max(item.getWidth(), labelRight);
+        double height = Math.max(item.getHeight(), LABEL_BOTTOM);
+        return new Rectangle2D(
+                item.getX() - STROKE_PADDING,
+                item.getY() - STROKE_PADDING,
+                width + 2 * STROKE_PADDING,
+                height + 2 * STROKE_PADDING);
+    }
+
+    public double labelWidth(DraggableItem item) {
+        String label;
+        switch (item.getKind()) {
+            case STRUCTURE:
+                label = ((Structure) item).getName();
+                break;
+            case ROOM:
+                label = ((Room) item).getName();
+                break;
+            default:
+                label = ((Furniture) item).getType();
+        }
+        return labelWidths.computeIfAbsent(label, text -> {
+            Text measure = new Text(text);
+            measure.setFont(font);
+            return measure.getLayoutBounds().getWidth();
+        });
+    }
+}
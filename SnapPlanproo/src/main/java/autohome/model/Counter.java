@@ -0,0 +1,33 @@
+package autohome.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A named count, or a gauge when set rather than incremented. */
+public class Counter {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    public Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
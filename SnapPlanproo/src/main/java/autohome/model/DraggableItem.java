@@ -1,9 +1,17 @@
 package autohome.model;
 
 public interface DraggableItem {
+    /** The kinds of item on a blueprint, in paint order. */
+    enum Kind { STRUCTURE, ROOM, FURNITURE }
+
+    Kind getKind();
+
     double getX();
     double getY();
     double getWidth();
     double getHeight();
     void setPosition(double x, double y);
+
+    /** Incremented on every change, so views can tell which items need refreshing. */
+    int getVersion();
 }
@@ -0,0 +1,295 @@
+package autohome.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo/redo stacks for a {@link BlueprintCanvas}. Each step stores only what
+ * it changed: the item it added or removed, two positions, two list indexes,
+ * or for a clear or load the two item lists, whose items are shared with the
+ * model rather than copied. Steps are evicted oldest first once the step
+ * count or the estimated memory exceeds its limit.
+ */
+public class EditHistory {
+    public static final int DEFAULT_MAX_STEPS = 500;
+    public static final long DEFAULT_MEMORY_LIMIT = 16L * 1024 * 1024;
+
+    // Rough heap cost of one item object and of one list slot referencing it
+    private static final long ITEM_BYTES = 96;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long STEP_BYTES = 32;
+
+    /** One undoable change, applied through the canvas so listeners see it. */
+    interface Edit {
+        void undo(BlueprintCanvas canvas);
+
+        void redo(BlueprintCanvas canvas);
+
+        long estimatedBytes();
+    }
+
+    static final class Add implements Edit {
+        private final DraggableItem item;
+
+        Add(DraggableItem item) {
+            this.item = item;
+        }
+
+        @Override
+        public void undo(BlueprintCanvas canvas) {
+            canvas.removeItem(item);
+        }
+
+        @Override
+        public void redo(BlueprintCanvas canvas) {
+            canvas.addItem(item);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return STEP_BYTES + ITEM_BYTES;
+        }
+    }
+
+    static final class Remove implements Edit {
+        private final DraggableItem item;
+        private final int index;
+
+        Remove(DraggableItem item, int index) {
+            this.item = item;
+            this.index = index;
+        }
+
+        @Override
+        public void undo(BlueprintCanvas canvas) {
+            canvas.addItem(item);
+            canvas.reorder(item, index);
+        }
+
+        @Override
+        public void redo(BlueprintCanvas canvas) {
+            canvas.removeItem(item);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return STEP_BYTES + ITEM_BYTES;
+        }
+    }
+
+    static final class Move implements Edit {
+        private final DraggableItem item;
+        private final double fromX, fromY, toX, toY;
+
+        Move(DraggableItem item, double fromX, double fromY, double toX, double toY) {
+            this.item = item;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.toX = toX;
+            this.toY = toY;
+        }
+
+        @Override
+        public void undo(BlueprintCanvas canvas) {
+            canvas.moveItem(item, fromX, fromY);
+        }
+
+        @Override
+        public void redo(BlueprintCanvas canvas) {
+            canvas.moveItem(item, toX, toY);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return STEP_BYTES + 4 * 8;
+        }
+    }
+
+    static final class Reorder implements Edit {
+        private final DraggableItem item;
+        private final int fromIndex, toIndex;
+
+        Reorder(DraggableItem item, int fromIndex, int toIndex) {
+            this.item = item;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        public void undo(BlueprintCanvas canvas) {
+            canvas.reorder(item, fromIndex);
+        }
+
+        @Override
+        public void redo(BlueprintCanvas canvas) {
+            canvas.reorder(item, toIndex);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return STEP_BYTES + 2 * 4;
+        }
+    }
+
+    /** Several edits made by one gesture, undone and redone as a single step. */
+    static final class Compound implements Edit {
+        private final List<Edit> edits;
+
+        Compound(List<Edit> edits) {
+            this.edits = new ArrayList<>(edits);
+        }
+
+        @Override
+        public void undo(BlueprintCanvas canvas) {
+            for (int i = edits.size() - 1; i >= 0; i--) {
+                edits.get(i).undo(canvas);
+            }
+        }
+
+        @Override
+        public void redo(BlueprintCanvas canvas) {
+            for (Edit edit : edits) {
+                edit.redo(canvas);
+            }
+        }
+
+        @Override
+        public long estimatedBytes() {
+            long bytes = STEP_BYTES;
+            for (Edit edit : edits) {
+                bytes += edit.estimatedBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /** A clear or load: the contents before and after, sharing the item objects. */
+    static final class Replace implements Edit {
+        private final Plan before;
+        private final Plan after;
+
+        Replace(Plan before, Plan after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void undo(BlueprintCanvas canvas) {
+            canvas.loadPlan(before);
+        }
+
+        @Override
+        public void redo(BlueprintCanvas canvas) {
+            canvas.loadPlan(after);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            // The replaced items stay reachable only through this step
+            return STEP_BYTES + (before.size() + after.size()) * REFERENCE_BYTES
+                    + before.size() * ITEM_BYTES;
+        }
+    }
+
+    private final Deque<Edit> undoSteps = new ArrayDeque<>();
+    private final Deque<Edit> redoSteps = new ArrayDeque<>();
+    private final List<Runnable> changeListeners = new ArrayList<>();
+    private int maxSteps = DEFAULT_MAX_STEPS;
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private long estimatedBytes;
+
+    public boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    public int getUndoCount() {
+        return undoSteps.size();
+    }
+
+    public int getRedoCount() {
+        return redoSteps.size();
+    }
+
+    /** Approximate heap held by the history, in bytes. */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public void setMaxSteps(int maxSteps) {
+        this.maxSteps = maxSteps;
+        evict();
+    }
+
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public void setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        evict();
+    }
+
+    public void clear() {
+        undoSteps.clear();
+        redoSteps.clear();
+        estimatedBytes = 0;
+        fireChanged();
+    }
+
+    /** Called on the FX thread whenever undo or redo availability may have changed. */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /** Records a new step; anything that could have been redone is discarded. */
+    void record(Edit edit) {
+        for (Edit discarded : redoSteps) {
+            estimatedBytes -= discarded.estimatedBytes();
+        }
+        redoSteps.clear();
+        undoSteps.addLast(edit);
+        estimatedBytes += edit.estimatedBytes();
+        evict();
+        fireChanged();
+    }
+
+    Edit takeUndo() {
+        return undoSteps.pollLast();
+    }
+
+    Edit takeRedo() {
+        return redoSteps.pollLast();
+    }
+
+    void undone(Edit edit) {
+        redoSteps.addLast(edit);
+        fireChanged();
+    }
+
+    void redone(Edit edit) {
+        undoSteps.addLast(edit);
+        fireChanged();
+    }
+
+    private void evict() {
+        while (!undoSteps.isEmpty() && (undoSteps.size() > maxSteps || estimatedBytes > memoryLimit)) {
+            estimatedBytes -= undoSteps.removeFirst().estimatedBytes();
+        }
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package autohome.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of canvas edits for crash recovery.
+ *
+ * Edits are encoded on the FX thread and handed to a background writer,
+ * which appends everything queued since its last write in one batch and
+ * fsyncs once per batch. A checkpoint writes the whole plan in the binary
+ * plan format and starts a new, empty journal generation, so recovery only
+ * loads the latest checkpoint and replays the short journal behind it.
+ *
+ * Files in the journal directory: {@code checkpoint-N.snplan} and
+ * {@code journal-N.wal}. A journal frame is {@code int length, int crc32,
+ * payload}; a torn or corrupt frame ends the replay.
+ *
+ * If a write fails the writer stops for good: later edits are no longer
+ * queued, and the failure is passed once to {@link #setOnFailure}.
+ */
+public class EditJournal implements EditListener, Closeable {
+    private static final int MAGIC = 0x534E4A4C;
+    private static final byte ADD = 1;
+    private static final byte MOVE = 2;
+    private static final byte RAISE = 3;
+    private static final byte CLEAR = 4;
+    private static final byte REMOVE = 5;
+    private static final byte REORDER = 6;
+    private static final byte ROOM = 1;
+    private static final byte FURNITURE = 2;
+    private static final byte STRUCTURE = 3;
+    private static final int MAX_BATCH = 4096;
+
+    private static final Object SHUTDOWN = new Object();
+
+    private static final class Checkpoint {
+        private final long generation;
+        private final byte[] plan;
+
+        private Checkpoint(long generation, byte[] plan) {
+            this.generation = generation;
+            this.plan = plan;
+        }
+    }
+
+    private final Path directory;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile IOException failure;
+    private volatile Consumer<IOException> onFailure;
+    private final AtomicBoolean failureReported = new AtomicBoolean();
+
+    // Owned by the FX thread
+    private final Map<DraggableItem, Integer> ids = new IdentityHashMap<>();
+    private int nextId;
+    private long generation;
+    private boolean dirty;
+    private boolean closed;
+
+    /** Starts a new journal generation in the directory, checkpointed at the given plan. */
+    public EditJournal(Path directory, Plan initial) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        generation = latestGeneration(directory);
+
+        writer = new Thread(this::writeLoop, "edit-journal");
+        writer.setDaemon(true);
+        writer.start();
+        checkpoint(initial);
+    }
+
+    /**
+     * Rebuilds the plan from the latest checkpoint and its journal, or returns
+     * null if the directory holds no checkpoint.
+     */
+    public static Plan recover(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return null;
+        long generation = latestGeneration(directory);
+        if (generation == 0) return null;
+
+        Plan plan;
+        try (InputStream in = Files.newInputStream(checkpointFile(directory, generation))) {
+            plan = PlanReader.read(in);
+        }
+
+        Map<Integer, DraggableItem> items = new HashMap<>();
+        int id = 0;
+        for (DraggableItem item : planOrder(plan)) {
+            items.put(id++, item);
+        }
+
+        Path journal = journalFile(directory, generation);
+        if (!Files.exists(journal)) return plan;
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journal));
+        if (data.remaining() < 12 || data.getInt() != MAGIC || data.getLong() != generation) {
+            return plan;
+        }
+
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) break;
+
+            byte[] payload = new byte[length];
+            data.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+
+            apply(plan, items, payload);
+        }
+        return plan;
+    }
+
+    /**
+     * Called once when journaling stops because of a write error: on the
+     * writer thread, or right here if it has already stopped.
+     */
+    public void setOnFailure(Consumer<IOException> handler) {
+        this.onFailure = handler;
+        reportFailure();
+    }
+
+    private void reportFailure() {
+        IOException e = failure;
+        Consumer<IOException> handler = onFailure;
+        if (e != null && handler != null && failureReported.compareAndSet(false, true)) {
+            handler.accept(e);
+        }
+    }
+
+    public boolean hasChangesSinceCheckpoint() {
+        return dirty;
+    }
+
+    /**
+     * Queues a checkpoint of the plan, which must reflect every edit reported
+     * so far. Call on the FX thread.
+     */
+    public void checkpoint(Plan plan) {
+        if (closed || failure != null) return;
+
+        ids.clear();
+        nextId = 0;
+        for (DraggableItem item : planOrder(plan)) {
+            ids.put(item, nextId++);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            PlanWriter.write(bytes, plan);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        queue.add(new Checkpoint(++generation, bytes.toByteArray()));
+        dirty = false;
+    }
+
+    @Override
+    public void itemAdded(DraggableItem item) {
+        int id = nextId++;
+        ids.put(item, id);
+        record(out -> {
+            out.writeByte(ADD);
+            out.writeInt(id);
+            writeItem(out, item);
+        });
+    }
+
+    @Override
+    public void itemMoved(DraggableItem item) {
+        Integer id = ids.get(item);
+        if (id == null) return;
+        record(out -> {
+            out.writeByte(MOVE);
+            out.writeInt(id);
+            out.writeDouble(item.getX());
+            out.writeDouble(item.getY());
+        });
+    }
+
+    @Override
+    public void itemRaised(DraggableItem item) {
+        Integer id = ids.get(item);
+        if (id == null) return;
+        record(out -> {
+            out.writeByte(RAISE);
+            out.writeInt(id);
+        });
+    }
+
+    @Override
+    public void itemRemoved(DraggableItem item) {
+        Integer id = ids.remove(item);
+        if (id == null) return;
+        record(out -> {
+            out.writeByte(REMOVE);
+            out.writeInt(id);
+        });
+    }
+
+    @Override
+    public void itemReordered(DraggableItem item, int index) {
+        Integer id = ids.get(item);
+        if (id == null) return;
+        record(out -> {
+            out.writeByte(REORDER);
+            out.writeInt(id);
+            out.writeInt(index);
+        });
+    }
+
+    @Override
+    public void cleared() {
+        ids.clear();
+        record(out -> out.writeByte(CLEAR));
+    }
+
+    @Override
+    public void planLoaded(Plan plan) {
+        checkpoint(plan);
+    }
+
+    /** Flushes pending edits and stops the writer, keeping the files for recovery. */
+    @Override
+    public void close() throws IOException {
+        shutdown();
+        if (failure != null) throw failure;
+    }
+
+    /** Stops the writer and deletes the journal files, e.g. after a clean exit. */
+    public void discard() throws IOException {
+        shutdown();
+        deleteGenerationsBefore(Long.MAX_VALUE);
+    }
+
+    private void shutdown() {
+        if (closed) return;
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Encoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+
+    private void record(Encoder encoder) {
+        if (closed || failure != null) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            encoder.encode(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        queue.add(bytes.toByteArray());
+        dirty = true;
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        FileChannel journal = null;
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH);
+
+                for (Object entry : batch) {
+                    if (entry == SHUTDOWN) {
+                        append(journal, pending);
+                        if (journal != null) journal.close();
+                        return;
+                    } else if (entry instanceof Checkpoint) {
+                        append(journal, pending);
+                        journal = startGeneration(journal, (Checkpoint) entry);
+                    } else {
+                        byte[] payload = (byte[]) entry;
+                        crc.reset();
+                        crc.update(payload);
+                        DataOutputStream frame = new DataOutputStream(pending);
+                        frame.writeInt(payload.length);
+                        frame.writeInt((int) crc.getValue());
+                        frame.write(payload);
+                    }
+                }
+                append(journal, pending);
+                batch.clear();
+            }
+        } catch (IOException e) {
+            failure = e;
+            // Nothing drains the queue from here on
+            queue.clear();
+            e.printStackTrace();
+            reportFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Writes the batched frames and fsyncs once for the whole batch. */
+    private static void append(FileChannel journal, ByteArrayOutputStream pending) throws IOException {
+        if (journal == null || pending.size() == 0) return;
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+        pending.reset();
+    }
+
+    private FileChannel startGeneration(FileChannel previous, Checkpoint checkpoint) throws IOException {
+        Path target = checkpointFile(directory, checkpoint.generation);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(checkpoint.plan);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        if (previous != null) {
+            previous.close();
+        }
+        FileChannel journal = FileChannel.open(journalFile(directory, checkpoint.generation),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(MAGIC);
+        header.putLong(checkpoint.generation);
+        header.flip();
+        journal.write(header);
+        journal.force(true);
+
+        deleteGenerationsBefore(checkpoint.generation);
+        return journal;
+    }
+
+    private void deleteGenerationsBefore(long limit) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long fileGeneration = generationOf(file);
+                if (fileGeneration > 0 && fileGeneration < limit) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static void apply(Plan plan, Map<Integer, DraggableItem> items, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        switch (in.readByte()) {
+            case ADD: {
+                int id = in.readInt();
+                DraggableItem item = readItem(in);
+                items.put(id, item);
+                plan.add(item);
+                break;
+            }
+            case MOVE: {
+                DraggableItem item = items.get(in.readInt());
+                double x = in.readDouble();
+                double y = in.readDouble();
+                if (item != null) {
+                    item.setPosition(x, y);
+                }
+                break;
+            }
+            case RAISE: {
+                DraggableItem item = items.get(in.readInt());
+                if (item != null) {
+                    paintOrder(plan, item).remove(item);
+                    plan.add(item);
+                }
+                break;
+            }
+            case REMOVE: {
+                DraggableItem item = items.remove(in.readInt());
+                if (item != null) {
+                    paintOrder(plan, item).remove(item);
+                }
+                break;
+            }
+            case REORDER: {
+                DraggableItem item = items.get(in.readInt());
+                int index = in.readInt();
+                if (item != null && paintOrder(plan, item).remove(item)) {
+                    reinsert(plan, item, index);
+                }
+                break;
+            }
+            case CLEAR:
+                items.clear();
+                plan.getRooms().clear();
+                plan.getFurniture().clear();
+                plan.getStructures().clear();
+                break;
+            default:
+                throw new IOException("Corrupt journal entry");
+        }
+    }
+
+    private static List<? extends DraggableItem> paintOrder(Plan plan, DraggableItem item) {
+        if (item instanceof Room) return plan.getRooms();
+        if (item instanceof Furniture) return plan.getFurniture();
+        return plan.getStructures();
+    }
+
+    private static void reinsert(Plan plan, DraggableItem item, int index) {
+        if (item instanceof Room) {
+            plan.getRooms().add(Math.min(index, plan.getRooms().size()), (Room) item);
+        } else if (item instanceof Furniture) {
+            plan.getFurniture().add(Math.min(index, plan.getFurniture().size()), (Furniture) item);
+        } else {
+            plan.getStructures().add(Math.min(index, plan.getStructures().size()), (Structure) item);
+        }
+    }
+
+    private static void writeItem(DataOutputStream out, DraggableItem item) throws IOException {
+        if (item instanceof Room) {
+            Room room = (Room) item;
+            out.writeByte(ROOM);
+            out.writeUTF(room.getName());
+            writeGeometry(out, room);
+            out.writeInt(ArgbColors.toArgb(room.getColor()));
+        } else if (item instanceof Furniture) {
+            Furniture furniture = (Furniture) item;
+            out.writeByte(FURNITURE);
+            out.writeUTF(furniture.getType());
+            writeGeometry(out, furniture);
+            out.writeInt(ArgbColors.toArgb(furniture.getColor()));
+        } else {
+            Structure structure = (Structure) item;
+            out.writeByte(STRUCTURE);
+            out.writeUTF(structure.getName());
+            writeGeometry(out, structure);
+            out.writeInt(ArgbColors.toArgb(structure.getColor()));
+            out.writeBoolean(structure.getStroke() != null);
+            if (structure.getStroke() != null) {
+                out.writeInt(ArgbColors.toArgb(structure.getStroke()));
+            }
+            out.writeDouble(structure.getStrokeWidth());
+        }
+    }
+
+    private static void writeGeometry(DataOutputStream out, DraggableItem item) throws IOException {
+        out.writeDouble(item.getX());
+        out.writeDouble(item.getY());
+        out.writeDouble(item.getWidth());
+        out.writeDouble(item.getHeight());
+    }
+
+    private static DraggableItem readItem(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        String name = in.readUTF();
+        double x = in.readDouble();
+        double y = in.readDouble();
+        double width = in.readDouble();
+        double height = in.readDouble();
+        int fill = in.readInt();
+
+        switch (kind) {
+            case ROOM: {
+                Room room = new Room(name, width, height, ArgbColors.fromArgb(fill));
+                room.setPosition(x, y);
+                return room;
+            }
+            case FURNITURE: {
+                Furniture furniture = new Furniture(name, width, height, ArgbColors.fromArgb(fill));
+                furniture.setPosition(x, y);
+                return furniture;
+            }
+            case STRUCTURE: {
+                Structure structure = new Structure(name, x, y, width, height, ArgbColors.fromArgb(fill));
+                if (in.readBoolean()) {
+                    structure.setStroke(ArgbColors.fromArgb(in.readInt()));
+                }
+                structure.setStrokeWidth(in.readDouble());
+                return structure;
+            }
+            default:
+                throw new IOException("Corrupt journal entry");
+        }
+    }
+
+    private static List<DraggableItem> planOrder(Plan plan) {
+        List<DraggableItem> items = new ArrayList<>(plan.size());
+        items.addAll(plan.getStructures());
+        items.addAll(plan.getRooms());
+        items.addAll(plan.getFurniture());
+        return items;
+    }
+
+    private static long latestGeneration(Path directory) throws IOException {
+        long latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "checkpoint-*.snplan")) {
+            for (Path file : files) {
+                latest = Math.max(latest, generationOf(file));
+            }
+        }
+        return latest;
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.indexOf('-');
+        int dot = name.indexOf('.');
+        if (dash < 0 || dot < dash) return 0;
+        try {
+            return Long.parseLong(name.substring(dash + 1, dot));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Path checkpointFile(Path directory, long generation) {
+        return directory.resolve("checkpoint-" + generation + ".snplan");
+    }
+
+    private static Path journalFile(Path directory, long generation) {
+        return directory.resolve("journal-" + generation + ".wal");
+    }
+}
@@ -0,0 +1,27 @@
+package autohome.model;
+
+/**
+ * Receives every edit made to a {@link BlueprintCanvas}, on the FX thread,
+ * after the canvas has applied it.
+ */
+public interface EditListener {
+    void itemAdded(DraggableItem item);
+
+    /** The item's position changed; drags report at most once per pulse. */
+    void itemMoved(DraggableItem item);
+
+    /** The item was brought to the top of its layer. */
+    void itemRaised(DraggableItem item);
+
+    /** The item was taken off the blueprint. */
+    void itemRemoved(DraggableItem item);
+
+    /** The item now sits at the given position in its layer's paint order. */
+    void itemReordered(DraggableItem item, int index);
+
+    /** All items were removed; a fresh house outline is reported as added next. */
+    void cleared();
+
+    /** The whole blueprint was replaced by the given plan. */
+    void planLoaded(Plan plan);
+}
@@ -9,6 +9,7 @@ public class Furniture implements DraggableItem {
     private final Color color;
     private double x;
     private double y;
+    private int version;
 
     public Furniture(String type, double width, double height, Color color) {
         this.type = type;
@@ -24,9 +25,13 @@ public class Furniture implements DraggableItem {
     @Override public double getHeight() { return height; }
     public Color getColor() { return color; }
 
+    @Override public Kind getKind() { return Kind.FURNITURE; }
+    @Override public int getVersion() { return version; }
+
     @Override
     public void setPosition(double x, double y) {
         this.x = x;
         this.y = y;
+        version++;
     }
 }
\ No newline at end of file
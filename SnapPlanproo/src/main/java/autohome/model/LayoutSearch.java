@@ -0,0 +1,309 @@
+package autohome.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Searches many room arrangements in parallel and keeps the best few.
+ *
+ * Every candidate comes from a seed: the seed picks a packing heuristic and
+ * perturbs the largest-first room order, so candidates are reproducible and
+ * the seed range splits cleanly into fork/join tasks. The search stops when
+ * the seeds, the time budget or the caller runs out.
+ */
+public class LayoutSearch {
+    private static final long MAX_SEEDS = 1L << 24;
+    private static final long LEAF_SEEDS = 32;
+    private static final double AREA_WEIGHT = 0.5;
+    private static final double ADJACENCY_WEIGHT = 0.25;
+    private static final double CORRIDOR_WEIGHT = 0.25;
+
+    private static final Pattern ROOM_NUMBER = Pattern.compile("\\s*\\d+$");
+
+    /** Room name prefixes that should end up next to each other. */
+    private static final String[][] ADJACENT = {
+            {"Kitchen", "Garden"},
+            {"Bedroom", "Bathroom"}
+    };
+
+    public static final class Candidate {
+        private final List<Room> rooms;
+        private final int unplaced;
+        private final double areaUse;
+        private final double adjacency;
+        private final double corridor;
+        private final double score;
+        private final long seed;
+        private List<String> signature;
+
+        private Candidate(List<Room> rooms, int unplaced, double areaUse, double adjacency,
+                          double corridor, long seed) {
+            this.rooms = rooms;
+            this.unplaced = unplaced;
+            this.areaUse = areaUse;
+            this.adjacency = adjacency;
+            this.corridor = corridor;
+            this.score = AREA_WEIGHT * areaUse + ADJACENCY_WEIGHT * adjacency
+                    + CORRIDOR_WEIGHT * corridor - unplaced;
+            this.seed = seed;
+        }
+
+        public List<Room> getRooms() { return rooms; }
+        public int getUnplaced() { return unplaced; }
+        /** Share of the house covered by rooms, 0 to 1. */
+        public double getAreaUse() { return areaUse; }
+        /** How close the preferred room pairs are, 0 to 1 (1 = touching). */
+        public double getAdjacency() { return adjacency; }
+        /** 1 minus the relative corridor length needed to connect every room. */
+        public double getCorridor() { return corridor; }
+        /** Weighted total; each room left out costs a full point. */
+        public double getScore() { return score; }
+        public long getSeed() { return seed; }
+    }
+
+    private final double x;
+    private final double y;
+    private final double width;
+    private final double height;
+    private final List<RoomSpec> specs;
+    private final int keep;
+
+    private final List<Candidate> best = new ArrayList<>();
+    private final AtomicLong evaluated = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile long deadline;
+    private ForkJoinPool pool;
+
+    public LayoutSearch(double x, double y, double width, double height, List<RoomSpec> specs, int keep) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.specs = new ArrayList<>(specs);
+        this.specs.sort(Comparator.comparingDouble(RoomSpec::getArea).reversed());
+        this.keep = keep;
+    }
+
+    /**
+     * Starts the search on a pool using every core. {@code onImproved} receives
+     * the current best list whenever it changes and {@code onFinished} runs
+     * once at the end; both are called on worker threads.
+     */
+    public synchronized void start(long budgetMillis, Consumer<List<Candidate>> onImproved, Runnable onFinished) {
+        if (pool != null) {
+            throw new IllegalStateException("Search already started");
+        }
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        pool.execute(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                try {
+                    new SearchTask(0, MAX_SEEDS, onImproved).invoke();
+                } finally {
+                    pool.shutdown();
+                    onFinished.run();
+                }
+            }
+        });
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getEvaluated() {
+        return evaluated.get();
+    }
+
+    /** Best candidates so far, highest score first. */
+    public synchronized List<Candidate> getBest() {
+        return new ArrayList<>(best);
+    }
+
+    private boolean stopped() {
+        return cancelled || System.nanoTime() > deadline;
+    }
+
+    private final class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final Consumer<List<Candidate>> onImproved;
+
+        private SearchTask(long from, long to, Consumer<List<Candidate>> onImproved) {
+            this.from = from;
+            this.to = to;
+            this.onImproved = onImproved;
+        }
+
+        @Override
+        protected void compute() {
+            if (stopped()) return;
+
+            if (to - from > LEAF_SEEDS) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new SearchTask(from, middle, onImproved), new SearchTask(middle, to, onImproved));
+                return;
+            }
+
+            RoomPacker packer = new RoomPacker(x, y, width, height);
+            for (long seed = from; seed < to && !stopped(); seed++) {
+                Candidate candidate = evaluate(packer, seed);
+                evaluated.incrementAndGet();
+                if (offer(candidate)) {
+                    onImproved.accept(getBest());
+                }
+            }
+        }
+    }
+
+    /** Packs and scores the arrangement for one seed; seed 0 is the plain greedy packing. */
+    private Candidate evaluate(RoomPacker packer, long seed) {
+        List<RoomSpec> order = new ArrayList<>(specs);
+        RoomPacker.Heuristic[] heuristics = RoomPacker.Heuristic.values();
+        RoomPacker.Heuristic heuristic = heuristics[(int) (seed % heuristics.length)];
+        if (seed >= heuristics.length) {
+            Random random = new Random(seed * 0x9E3779B97F4A7C15L);
+            double[] keys = new double[order.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = order.get(i).getArea() * (0.25 + random.nextDouble());
+            }
+            Integer[] indices = new Integer[keys.length];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            Arrays.sort(indices, (a, b) -> Double.compare(keys[b], keys[a]));
+            List<RoomSpec> shuffled = new ArrayList<>(order.size());
+            for (int index : indices) {
+                shuffled.add(order.get(index));
+            }
+            order = shuffled;
+        }
+
+        RoomPacker.Result result = packer.pack(order, heuristic);
+        List<Room> rooms = result.getPlaced();
+        return new Candidate(rooms, result.getUnplaced().size(),
+                result.getPlacedArea() / (width * height),
+                adjacencyScore(rooms), corridorScore(rooms), seed);
+    }
+
+    private synchronized boolean offer(Candidate candidate) {
+        if (best.size() == keep && candidate.score <= best.get(best.size() - 1).score) {
+            return false;
+        }
+        candidate.signature = signature(candidate.rooms);
+        for (Candidate other : best) {
+            if (other.signature.equals(candidate.signature)) return false;
+        }
+
+        int index = Collections.binarySearch(best, candidate,
+                Comparator.comparingDouble((Candidate c) -> c.score).reversed());
+        best.add(index < 0 ? -index - 1 : index, candidate);
+        if (best.size() > keep) {
+            best.remove(best.size() - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Room kinds and geometry in a fixed order, so layouts that only swap
+     * identical rooms (Bedroom 1 and Bedroom 2) compare equal.
+     */
+    private static List<String> signature(List<Room> rooms) {
+        List<String> signature = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            signature.add(ROOM_NUMBER.matcher(room.getName()).replaceFirst("") + "@" + room.getX() + "," + room.getY()
+                    + "," + room.getWidth() + "," + room.getHeight());
+        }
+        Collections.sort(signature);
+        return signature;
+    }
+
+    /** Average over the preferred pairs of 1 - gap / house diagonal, using the closest rooms of each pair. */
+    private double adjacencyScore(List<Room> rooms) {
+        double diagonal = Math.hypot(width, height);
+        double total = 0;
+        int pairs = 0;
+        for (String[] pair : ADJACENT) {
+            double gap = Double.MAX_VALUE;
+            for (Room a : rooms) {
+                if (!a.getName().startsWith(pair[0])) continue;
+                for (Room b : rooms) {
+                    if (b.getName().startsWith(pair[1])) {
+                        gap = Math.min(gap, gap(a, b));
+                    }
+                }
+            }
+            if (gap != Double.MAX_VALUE) {
+                total += 1 - Math.min(1, gap / diagonal);
+                pairs++;
+            }
+        }
+        return pairs == 0 ? 1 : total / pairs;
+    }
+
+    private static double gap(Room a, Room b) {
+        double dx = Math.max(0, Math.max(a.getX() - (b.getX() + b.getWidth()), b.getX() - (a.getX() + a.getWidth())));
+        double dy = Math.max(0, Math.max(a.getY() - (b.getY() + b.getHeight()), b.getY() - (a.getY() + a.getHeight())));
+        return Math.hypot(dx, dy);
+    }
+
+    /**
+     * Estimates corridor length as the Manhattan minimum spanning tree over the
+     * room centers, relative to one house perimeter per connection.
+     */
+    private double corridorScore(List<Room> rooms) {
+        int n = rooms.size();
+        if (n < 2) return 1;
+
+        double[] cx = new double[n];
+        double[] cy = new double[n];
+        for (int i = 0; i < n; i++) {
+            Room room = rooms.get(i);
+            cx[i] = room.getX() + room.getWidth() / 2;
+            cy[i] = room.getY() + room.getHeight() / 2;
+        }
+
+        // Prim's algorithm on the complete graph
+        double[] distance = new double[n];
+        boolean[] connected = new boolean[n];
+        Arrays.fill(distance, Double.MAX_VALUE);
+        distance[0] = 0;
+        double length = 0;
+        for (int step = 0; step < n; step++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!connected[i] && (next < 0 || distance[i] < distance[next])) {
+                    next = i;
+                }
+            }
+            connected[next] = true;
+            length += distance[next];
+            for (int i = 0; i < n; i++) {
+                if (!connected[i]) {
+                    double d = Math.abs(cx[i] - cx[next]) + Math.abs(cy[i] - cy[next]);
+                    if (d < distance[i]) {
+                        distance[i] = d;
+                    }
+                }
+            }
+        }
+        return Math.max(0, 1 - length / ((n - 1) * (width + height)));
+    }
+}
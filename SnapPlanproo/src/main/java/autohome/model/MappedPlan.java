@@ -0,0 +1,252 @@
+package autohome.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A plan block of a {@link WorkspaceStore}, read straight from the mapped
+ * file. Geometry queries run on the raw records; Room, Furniture and
+ * Structure objects are only built for the records a caller asks for.
+ * Region queries go through the records sorted by x, built on first use.
+ */
+public class MappedPlan {
+    static final int BLOCK_HEADER_SIZE = 20;
+    static final int RECORD_SIZE = 40;
+
+    private static final byte STRUCTURE = 1;
+    private static final byte ROOM = 2;
+    private static final byte FURNITURE = 3;
+
+    // Record layout, little-endian
+    private static final int KIND = 0;
+    private static final int HAS_STROKE = 1;
+    private static final int NAME = 4;
+    private static final int X = 8;
+    private static final int Y = 12;
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 20;
+    private static final int FILL = 24;
+    private static final int STROKE = 28;
+    private static final int STROKE_WIDTH = 32;
+
+    private final ByteBuffer block;
+    private final int size;
+    private final double canvasWidth;
+    private final double canvasHeight;
+    private final int recordsOffset;
+    private final String[] strings;
+    private int[] byX;
+    private float[] sortedX;
+    private float maxWidth;
+
+    MappedPlan(ByteBuffer block) {
+        this.block = block;
+        size = block.getInt(0);
+        strings = new String[block.getInt(4)];
+        canvasWidth = block.getFloat(8);
+        canvasHeight = block.getFloat(12);
+        recordsOffset = block.getInt(16);
+
+        int position = BLOCK_HEADER_SIZE;
+        for (int i = 0; i < strings.length; i++) {
+            int length = block.getInt(position);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = block.duplicate();
+            view.position(position + 4);
+            view.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+    }
+
+    public int size() { return size; }
+    public double getCanvasWidth() { return canvasWidth; }
+    public double getCanvasHeight() { return canvasHeight; }
+
+    public double getX(int i) { return block.getFloat(offset(i) + X); }
+    public double getY(int i) { return block.getFloat(offset(i) + Y); }
+    public double getWidth(int i) { return block.getFloat(offset(i) + WIDTH); }
+    public double getHeight(int i) { return block.getFloat(offset(i) + HEIGHT); }
+
+    /** Builds the item stored in record {@code i}. */
+    public DraggableItem get(int i) {
+        int base = offset(i);
+        String name = strings[block.getInt(base + NAME)];
+        double x = block.getFloat(base + X);
+        double y = block.getFloat(base + Y);
+        double width = block.getFloat(base + WIDTH);
+        double height = block.getFloat(base + HEIGHT);
+        int fill = block.getInt(base + FILL);
+
+        switch (block.get(base + KIND)) {
+            case ROOM: {
+                Room room = new Room(name, width, height, ArgbColors.fromArgb(fill));
+                room.setPosition(x, y);
+                return room;
+            }
+            case FURNITURE: {
+                Furniture furniture = new Furniture(name, width, height, ArgbColors.fromArgb(fill));
+                furniture.setPosition(x, y);
+                return furniture;
+            }
+            default: {
+                Structure structure = new Structure(name, x, y, width, height, ArgbColors.fromArgb(fill));
+                if (block.get(base + HAS_STROKE) != 0) {
+                    structure.setStroke(ArgbColors.fromArgb(block.getInt(base + STROKE)));
+                }
+                structure.setStrokeWidth(block.getFloat(base + STROKE_WIDTH));
+                return structure;
+            }
+        }
+    }
+
+    /** Builds only the items whose bounds intersect the region, in paint order. */
+    public List<DraggableItem> itemsIn(double x, double y, double width, double height) {
+        int[] hits = indicesIn(x, y, width, height);
+        List<DraggableItem> result = new ArrayList<>(hits.length);
+        for (int i : hits) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /** Returns the records whose bounds intersect the region, in paint order. */
+    public int[] indicesIn(double x, double y, double width, double height) {
+        if (byX == null) {
+            sortByX();
+        }
+        // Only records starting within maxWidth left of the region can reach into it
+        int k = lowerBound(x - maxWidth);
+        int[] result = new int[16];
+        int count = 0;
+        for (; k < size && sortedX[k] <= x + width; k++) {
+            int i = byX[k];
+            int base = offset(i);
+            float itemY = block.getFloat(base + Y);
+            if (sortedX[k] + block.getFloat(base + WIDTH) >= x &&
+                    itemY <= y + height && itemY + block.getFloat(base + HEIGHT) >= y) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = i;
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void sortByX() {
+        // Sort (x, record) pairs packed into longs; the x bits are flipped to order like the floats
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            int base = offset(i);
+            int bits = Float.floatToIntBits(block.getFloat(base + X));
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            keys[i] = ((long) bits << 32) | i;
+            maxWidth = Math.max(maxWidth, block.getFloat(base + WIDTH));
+        }
+        Arrays.sort(keys);
+        int[] order = new int[size];
+        float[] xs = new float[size];
+        for (int k = 0; k < size; k++) {
+            order[k] = (int) keys[k];
+            xs[k] = block.getFloat(offset(order[k]) + X);
+        }
+        sortedX = xs;
+        byX = order;
+    }
+
+    private int lowerBound(double x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedX[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Builds every item. */
+    public Plan toPlan() {
+        Plan plan = new Plan(canvasWidth, canvasHeight);
+        for (int i = 0; i < size; i++) {
+            plan.add(get(i));
+        }
+        return plan;
+    }
+
+    /** Copies every record into a {@link PackedPlan} without building item objects. */
+    public PackedPlan toPackedPlan() {
+        PackedPlan packed = new PackedPlan(canvasWidth, canvasHeight);
+        for (int i = 0; i < size; i++) {
+            int base = offset(i);
+            String name = strings[block.getInt(base + NAME)];
+            double x = block.getFloat(base + X);
+            double y = block.getFloat(base + Y);
+            double width = block.getFloat(base + WIDTH);
+            double height = block.getFloat(base + HEIGHT);
+            int fill = block.getInt(base + FILL);
+
+            switch (block.get(base + KIND)) {
+                case ROOM:
+                    packed.addRoom(name, x, y, width, height, fill);
+                    break;
+                case FURNITURE:
+                    packed.addFurniture(name, x, y, width, height, fill);
+                    break;
+                default: {
+                    int index = packed.addStructure(name, x, y, width, height, fill);
+                    packed.setStrokeWidth(index, block.getFloat(base + STROKE_WIDTH));
+                    if (block.get(base + HAS_STROKE) != 0) {
+                        packed.setStroke(index, block.getInt(base + STROKE), block.getFloat(base + STROKE_WIDTH));
+                    }
+                }
+            }
+        }
+        return packed;
+    }
+
+    private int offset(int i) {
+        return recordsOffset + i * RECORD_SIZE;
+    }
+
+    static String nameOf(DraggableItem item) {
+        if (item instanceof Room) return ((Room) item).getName();
+        if (item instanceof Furniture) return ((Furniture) item).getType();
+        return ((Structure) item).getName();
+    }
+
+    static void putRecord(ByteBuffer buffer, DraggableItem item, int nameIndex) {
+        int base = buffer.position();
+        byte kind = item instanceof Room ? ROOM : item instanceof Furniture ? FURNITURE : STRUCTURE;
+        buffer.put(base + KIND, kind);
+        buffer.putInt(base + NAME, nameIndex);
+        buffer.putFloat(base + X, (float) item.getX());
+        buffer.putFloat(base + Y, (float) item.getY());
+        buffer.putFloat(base + WIDTH, (float) item.getWidth());
+        buffer.putFloat(base + HEIGHT, (float) item.getHeight());
+
+        if (item instanceof Room) {
+            buffer.putInt(base + FILL, ArgbColors.toArgb(((Room) item).getColor()));
+        } else if (item instanceof Furniture) {
+            buffer.putInt(base + FILL, ArgbColors.toArgb(((Furniture) item).getColor()));
+        } else {
+            Structure structure = (Structure) item;
+            buffer.putInt(base + FILL, ArgbColors.toArgb(structure.getColor()));
+            if (structure.getStroke() != null) {
+                buffer.put(base + HAS_STROKE, (byte) 1);
+                buffer.putInt(base + STROKE, ArgbColors.toArgb(structure.getStroke()));
+            }
+            buffer.putFloat(base + STROKE_WIDTH, (float) structure.getStrokeWidth());
+        }
+        buffer.position(base + RECORD_SIZE);
+    }
+}
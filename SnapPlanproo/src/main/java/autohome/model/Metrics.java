@@ -0,0 +1,100 @@
+package autohome.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of timing histograms and counters. Instrumented code
+ * looks its metrics up once, into static fields, and records into them
+ * directly; the overlay and {@link #dump} read whatever has been registered.
+ */
+public final class Metrics {
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, Histogram::new);
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    public static List<Histogram> getHistograms() {
+        List<Histogram> result = new ArrayList<>(HISTOGRAMS.values());
+        result.sort(Comparator.comparing(Histogram::getName));
+        return result;
+    }
+
+    public static List<Counter> getCounters() {
+        List<Counter> result = new ArrayList<>(COUNTERS.values());
+        result.sort(Comparator.comparing(Counter::getName));
+        return result;
+    }
+
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+        for (Counter counter : COUNTERS.values()) {
+            counter.set(0);
+        }
+    }
+
+    /** Multi-line text of every metric, for the on-screen overlay. */
+    public static String format() {
+        StringBuilder text = new StringBuilder();
+        for (Histogram histogram : getHistograms()) {
+            text.append(histogram.summary()).append('\n');
+        }
+        for (Counter counter : getCounters()) {
+            text.append(String.format("%-18s %d%n", counter.getName(), counter.get()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Appends one JSON line per metric to the file, all stamped with the same
+     * time, so successive dumps of a session can be compared. Times are in
+     * milliseconds.
+     */
+    public static void dump(Path file) throws IOException {
+        String time = Instant.now().toString();
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Histogram h : getHistograms()) {
+                out.write(String.format(Locale.ROOT,
+                        "{\"time\":\"%s\",\"histogram\":\"%s\",\"count\":%d,\"mean\":%.3f,\"p50\":%.3f," +
+                                "\"p90\":%.3f,\"p99\":%.3f,\"p999\":%.3f,\"max\":%.3f}",
+                        time, h.getName(), h.getCount(), Histogram.millis(h.getMean()),
+                        Histogram.millis(h.valueAtPercentile(50)), Histogram.millis(h.valueAtPercentile(90)),
+                        Histogram.millis(h.valueAtPercentile(99)), Histogram.millis(h.valueAtPercentile(99.9)),
+                        Histogram.millis(h.getMax())));
+                out.newLine();
+            }
+            for (Counter counter : getCounters()) {
+                out.write(String.format(Locale.ROOT, "{\"time\":\"%s\",\"counter\":\"%s\",\"value\":%d}",
+                        time, counter.getName(), counter.get()));
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package autohome.model;
+
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A plan stored as parallel primitive arrays instead of one object per item:
+ * geometry in {@code double[]}s, colors as packed ARGB ints and names as
+ * indexes into a shared string table. Items are addressed by index, and
+ * hit-tests, region queries and drawing run straight over the arrays.
+ *
+ * Only the benchmarks use this, to compare against the object model; the
+ * application, the canvas, the renderer and {@link Plan} all work on Room,
+ * Furniture and Structure objects. {@link #of} and {@link #toPlan} copy
+ * between the two.
+ *
+ * Items keep the order they were added in; paint order is structures, then
+ * rooms, then furniture, each in that order, the same as {@link Plan}.
+ */
+public class PackedPlan {
+    private static final byte STRUCTURE = 1;
+    private static final byte ROOM = 2;
+    private static final byte FURNITURE = 3;
+    private static final byte[] PAINT_ORDER = {STRUCTURE, ROOM, FURNITURE};
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double canvasWidth;
+    private final double canvasHeight;
+    private int size;
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private double[] widths = new double[INITIAL_CAPACITY];
+    private double[] heights = new double[INITIAL_CAPACITY];
+    private int[] fills = new int[INITIAL_CAPACITY];
+    private int[] strokes = new int[INITIAL_CAPACITY];
+    private boolean[] hasStrokes = new boolean[INITIAL_CAPACITY];
+    private double[] strokeWidths = new double[INITIAL_CAPACITY];
+    private int[] versions = new int[INITIAL_CAPACITY];
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+
+    public PackedPlan(double canvasWidth, double canvasHeight) {
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+    }
+
+    /** Copies every item of the plan. */
+    public static PackedPlan of(Plan plan) {
+        PackedPlan packed = new PackedPlan(plan.getWidth(), plan.getHeight());
+        packed.ensureCapacity(plan.size());
+        for (Structure structure : plan.getStructures()) {
+            packed.add(structure);
+        }
+        for (Room room : plan.getRooms()) {
+            packed.add(room);
+        }
+        for (Furniture item : plan.getFurniture()) {
+            packed.add(item);
+        }
+        return packed;
+    }
+
+    public int size() { return size; }
+    public double getCanvasWidth() { return canvasWidth; }
+    public double getCanvasHeight() { return canvasHeight; }
+
+    public double getX(int i) { return xs[i]; }
+    public double getY(int i) { return ys[i]; }
+    public double getWidth(int i) { return widths[i]; }
+    public double getHeight(int i) { return heights[i]; }
+    public String getName(int i) { return strings.get(names[i]); }
+    public int getFill(int i) { return fills[i]; }
+    public int getVersion(int i) { return versions[i]; }
+    public boolean isRoom(int i) { return kinds[i] == ROOM; }
+    public boolean isFurniture(int i) { return kinds[i] == FURNITURE; }
+    public boolean isStructure(int i) { return kinds[i] == STRUCTURE; }
+    public double getStrokeWidth(int i) { return strokeWidths[i]; }
+
+    /** The structure's outline color, or null if it has none. */
+    public Color getStroke(int i) {
+        return hasStrokes[i] ? ArgbColors.fromArgb(strokes[i]) : null;
+    }
+
+    public DraggableItem.Kind getKind(int i) {
+        switch (kinds[i]) {
+            case ROOM:
+                return DraggableItem.Kind.ROOM;
+            case FURNITURE:
+                return DraggableItem.Kind.FURNITURE;
+            default:
+                return DraggableItem.Kind.STRUCTURE;
+        }
+    }
+
+    public void setPosition(int i, double x, double y) {
+        xs[i] = x;
+        ys[i] = y;
+        versions[i]++;
+    }
+
+    public int addRoom(String name, double x, double y, double width, double height, int fill) {
+        return append(ROOM, name, x, y, width, height, fill);
+    }
+
+    public int addFurniture(String type, double x, double y, double width, double height, int fill) {
+        return append(FURNITURE, type, x, y, width, height, fill);
+    }
+
+    public int addStructure(String name, double x, double y, double width, double height, int fill) {
+        return append(STRUCTURE, name, x, y, width, height, fill);
+    }
+
+    /** Gives a structure an outline; structures have none until this is called. */
+    public void setStroke(int i, int stroke, double strokeWidth) {
+        strokes[i] = stroke;
+        hasStrokes[i] = true;
+        strokeWidths[i] = strokeWidth;
+        versions[i]++;
+    }
+
+    public void setStrokeWidth(int i, double strokeWidth) {
+        strokeWidths[i] = strokeWidth;
+        versions[i]++;
+    }
+
+    /** Copies the item in and returns its index. */
+    public int add(DraggableItem item) {
+        switch (item.getKind()) {
+            case ROOM: {
+                Room room = (Room) item;
+                return addRoom(room.getName(), room.getX(), room.getY(), room.getWidth(), room.getHeight(),
+                        ArgbColors.toArgb(room.getColor()));
+            }
+            case FURNITURE: {
+                Furniture furniture = (Furniture) item;
+                return addFurniture(furniture.getType(), furniture.getX(), furniture.getY(),
+                        furniture.getWidth(), furniture.getHeight(), ArgbColors.toArgb(furniture.getColor()));
+            }
+            default: {
+                Structure structure = (Structure) item;
+                int i = addStructure(structure.getName(), structure.getX(), structure.getY(),
+                        structure.getWidth(), structure.getHeight(), ArgbColors.toArgb(structure.getColor()));
+                setStrokeWidth(i, structure.getStrokeWidth());
+                if (structure.getStroke() != null) {
+                    setStroke(i, ArgbColors.toArgb(structure.getStroke()), structure.getStrokeWidth());
+                }
+                return i;
+            }
+        }
+    }
+
+    /** Copies every item out into Room, Furniture and Structure objects, in paint order. */
+    public Plan toPlan() {
+        Plan plan = new Plan(canvasWidth, canvasHeight);
+        for (byte kind : PAINT_ORDER) {
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == kind) {
+                    plan.add(toObject(i));
+                }
+            }
+        }
+        return plan;
+    }
+
+    private DraggableItem toObject(int i) {
+        String name = getName(i);
+        Color fill = ArgbColors.fromArgb(fills[i]);
+        switch (kinds[i]) {
+            case ROOM: {
+                Room room = new Room(name, widths[i], heights[i], fill);
+                room.setPosition(xs[i], ys[i]);
+                return room;
+            }
+            case FURNITURE: {
+                Furniture furniture = new Furniture(name, widths[i], heights[i], fill);
+                furniture.setPosition(xs[i], ys[i]);
+                return furniture;
+            }
+            default: {
+                Structure structure = new Structure(name, xs[i], ys[i], widths[i], heights[i], fill);
+                structure.setStroke(getStroke(i));
+                structure.setStrokeWidth(strokeWidths[i]);
+                return structure;
+            }
+        }
+    }
+
+    /** Returns the index of the topmost item containing the point, or -1. */
+    public int indexAt(double x, double y) {
+        for (int k = PAINT_ORDER.length - 1; k >= 0; k--) {
+            byte kind = PAINT_ORDER[k];
+            for (int i = size - 1; i >= 0; i--) {
+                if (kinds[i] == kind &&
+                        x >= xs[i] && x <= xs[i] + widths[i] &&
+                        y >= ys[i] && y <= ys[i] + heights[i]) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the indexes of the items intersecting the region, in paint order. */
+    public int[] indicesIn(double x, double y, double width, double height) {
+        int[] result = new int[16];
+        int count = 0;
+        for (byte kind : PAINT_ORDER) {
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == kind &&
+                        xs[i] <= x + width && xs[i] + widths[i] >= x &&
+                        ys[i] <= y + height && ys[i] + heights[i] >= y) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = i;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /** Draws every item in paint order over a white background, like {@link BlueprintRenderer#drawPlan}. */
+    public void draw(PlanGraphics g) {
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, canvasWidth, canvasHeight);
+        for (byte kind : PAINT_ORDER) {
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == kind) {
+                    drawItem(g, i);
+                }
+            }
+        }
+    }
+
+    private void drawItem(PlanGraphics g, int i) {
+        double x = xs[i];
+        double y = ys[i];
+        double width = widths[i];
+        double height = heights[i];
+        if (kinds[i] == STRUCTURE) {
+            if (fills[i] != 0) {
+                g.setFill(ArgbColors.fromArgb(fills[i]));
+                g.fillRect(x, y, width, height);
+            }
+            if (hasStrokes[i]) {
+                g.setStroke(ArgbColors.fromArgb(strokes[i]));
+                g.setLineWidth(strokeWidths[i]);
+                g.strokeRect(x, y, width, height);
+            }
+        } else {
+            g.setFill(ArgbColors.fromArgb(fills[i]));
+            g.fillRect(x, y, width, height);
+            g.setStroke(Color.BLACK);
+            g.setLineWidth(BlueprintRenderer.ITEM_STROKE_WIDTH);
+            g.strokeRect(x, y, width, height);
+        }
+        g.setFill(Color.BLACK);
+        g.fillText(strings.get(names[i]), x + 5, y + 15);
+    }
+
+    private int append(byte kind, String name, double x, double y, double width, double height, int fill) {
+        ensureCapacity(size + 1);
+        int i = size++;
+        kinds[i] = kind;
+        names[i] = intern(name);
+        xs[i] = x;
+        ys[i] = y;
+        widths[i] = width;
+        heights[i] = height;
+        fills[i] = fill;
+        strokeWidths[i] = 1;
+        return i;
+    }
+
+    private int intern(String name) {
+        Integer index = stringIndex.get(name);
+        if (index == null) {
+            index = strings.size();
+            strings.add(name);
+            stringIndex.put(name, index);
+        }
+        return index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= kinds.length) return;
+        int length = Math.max(capacity, kinds.length * 2);
+        kinds = Arrays.copyOf(kinds, length);
+        names = Arrays.copyOf(names, length);
+        xs = Arrays.copyOf(xs, length);
+        ys = Arrays.copyOf(ys, length);
+        widths = Arrays.copyOf(widths, length);
+        heights = Arrays.copyOf(heights, length);
+        fills = Arrays.copyOf(fills, length);
+        strokes = Arrays.copyOf(strokes, length);
+        hasStrokes = Arrays.copyOf(hasStrokes, length);
+        strokeWidths = Arrays.copyOf(strokeWidths, length);
+        versions = Arrays.copyOf(versions, length);
+    }
+}
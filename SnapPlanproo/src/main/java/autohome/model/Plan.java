@@ -0,0 +1,68 @@
+package autohome.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The contents of a blueprint detached from any canvas: the items of each
+ * layer in paint order, plus the size of the canvas they were laid out on.
+ */
+public class Plan {
+    private final double width;
+    private final double height;
+    private final List<Room> rooms = new ArrayList<>();
+    private final List<Furniture> furniture = new ArrayList<>();
+    private final List<Structure> structures = new ArrayList<>();
+
+    public Plan(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+    public List<Room> getRooms() { return rooms; }
+    public List<Furniture> getFurniture() { return furniture; }
+    public List<Structure> getStructures() { return structures; }
+
+    public int size() {
+        return rooms.size() + furniture.size() + structures.size();
+    }
+
+    public void add(DraggableItem item) {
+        switch (item.getKind()) {
+            case ROOM:
+                rooms.add((Room) item);
+                break;
+            case FURNITURE:
+                furniture.add((Furniture) item);
+                break;
+            default:
+                structures.add((Structure) item);
+        }
+    }
+
+    /** Returns a deep copy, so the result is unaffected by later edits to these items. */
+    public Plan copy() {
+        Plan copy = new Plan(width, height);
+        for (Structure structure : structures) {
+            Structure item = new Structure(structure.getName(), structure.getX(), structure.getY(),
+                    structure.getWidth(), structure.getHeight(), structure.getColor());
+            item.setStroke(structure.getStroke());
+            item.setStrokeWidth(structure.getStrokeWidth());
+            copy.structures.add(item);
+        }
+        for (Room room : rooms) {
+            Room item = new Room(room.getName(), room.getWidth(), room.getHeight(), room.getColor());
+            item.setPosition(room.getX(), room.getY());
+            copy.rooms.add(item);
+        }
+        for (Furniture furniture : this.furniture) {
+            Furniture item = new Furniture(furniture.getType(), furniture.getWidth(), furniture.getHeight(),
+                    furniture.getColor());
+            item.setPosition(furniture.getX(), furniture.getY());
+            copy.furniture.add(item);
+        }
+        return copy;
+    }
+}
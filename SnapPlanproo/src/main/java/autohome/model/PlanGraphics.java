@@ -0,0 +1,21 @@
+package autohome.model;
+
+import javafx.scene.paint.Color;
+
+/**
+ * The drawing operations blueprints need, so the same rendering code can
+ * target a JavaFX canvas or a headless Java2D image.
+ */
+public interface PlanGraphics {
+    void setFill(Color color);
+
+    void setStroke(Color color);
+
+    void setLineWidth(double width);
+
+    void fillRect(double x, double y, double width, double height);
+
+    void strokeRect(double x, double y, double width, double height);
+
+    void fillText(String text, double x, double y);
+}
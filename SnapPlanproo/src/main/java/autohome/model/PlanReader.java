@@ -0,0 +1,125 @@
+package autohome.model;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams plan items back out of the binary blueprint format written by
+ * {@link PlanWriter}.
+ */
+public class PlanReader implements Closeable {
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private final double canvasWidth;
+    private final double canvasHeight;
+    private boolean finished;
+
+    public PlanReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (this.in.readInt() != PlanWriter.MAGIC) {
+            throw new IOException("Not a blueprint file");
+        }
+        short version = this.in.readShort();
+        if (version != PlanWriter.VERSION) {
+            throw new IOException("Unsupported blueprint version " + version);
+        }
+        canvasWidth = this.in.readFloat();
+        canvasHeight = this.in.readFloat();
+    }
+
+    public static Plan read(InputStream in) throws IOException {
+        try (PlanReader reader = new PlanReader(in)) {
+            Plan plan = new Plan(reader.getCanvasWidth(), reader.getCanvasHeight());
+            DraggableItem item;
+            while ((item = reader.next()) != null) {
+                plan.add(item);
+            }
+            return plan;
+        }
+    }
+
+    public double getCanvasWidth() {
+        return canvasWidth;
+    }
+
+    public double getCanvasHeight() {
+        return canvasHeight;
+    }
+
+    /** Returns the next item, or null once the end of the plan is reached. */
+    public DraggableItem next() throws IOException {
+        if (finished) return null;
+
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case PlanWriter.END:
+                finished = true;
+                return null;
+            case PlanWriter.ROOM: {
+                String name = readString();
+                double x = in.readFloat();
+                double y = in.readFloat();
+                double width = in.readFloat();
+                double height = in.readFloat();
+                Room room = new Room(name, width, height, ArgbColors.fromArgb(in.readInt()));
+                room.setPosition(x, y);
+                return room;
+            }
+            case PlanWriter.FURNITURE: {
+                String type = readString();
+                double x = in.readFloat();
+                double y = in.readFloat();
+                double width = in.readFloat();
+                double height = in.readFloat();
+                Furniture furniture = new Furniture(type, width, height, ArgbColors.fromArgb(in.readInt()));
+                furniture.setPosition(x, y);
+                return furniture;
+            }
+            case PlanWriter.STRUCTURE: {
+                String name = readString();
+                double x = in.readFloat();
+                double y = in.readFloat();
+                double width = in.readFloat();
+                double height = in.readFloat();
+                Structure structure = new Structure(name, x, y, width, height, ArgbColors.fromArgb(in.readInt()));
+                if (in.readBoolean()) {
+                    structure.setStroke(ArgbColors.fromArgb(in.readInt()));
+                }
+                structure.setStrokeWidth(in.readFloat());
+                return structure;
+            }
+            default:
+                throw new IOException("Corrupt blueprint file: unknown record " + tag);
+        }
+    }
+
+    private String readString() throws IOException {
+        int index = readVarInt();
+        if (index == strings.size()) {
+            strings.add(in.readUTF());
+        } else if (index > strings.size()) {
+            throw new IOException("Corrupt blueprint file: bad string index " + index);
+        }
+        return strings.get(index);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt blueprint file: varint too long");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
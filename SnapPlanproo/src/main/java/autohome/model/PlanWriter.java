@@ -0,0 +1,115 @@
+package autohome.model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams plan items into the binary blueprint format.
+ *
+ * <pre>
+ * header:  int magic 'SNPL', short version, float canvas width, float canvas height
+ * records: byte tag (1 room, 2 furniture, 3 structure), then
+ *          string name, float x, y, width, height, int fill ARGB
+ *          structures add: byte has-stroke, [int stroke ARGB], float stroke width
+ * end:     byte 0
+ * </pre>
+ *
+ * Strings are written once: each string is a varint index into the string
+ * table, and an index equal to the table size introduces a new UTF entry.
+ */
+public class PlanWriter implements Closeable {
+    static final int MAGIC = 0x534E504C;
+    static final short VERSION = 1;
+    static final int END = 0;
+    static final int ROOM = 1;
+    static final int FURNITURE = 2;
+    static final int STRUCTURE = 3;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public PlanWriter(OutputStream out, double canvasWidth, double canvasHeight) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.writeFloat((float) canvasWidth);
+        this.out.writeFloat((float) canvasHeight);
+    }
+
+    public static void write(OutputStream out, Plan plan) throws IOException {
+        try (PlanWriter writer = new PlanWriter(out, plan.getWidth(), plan.getHeight())) {
+            for (Structure structure : plan.getStructures()) {
+                writer.write(structure);
+            }
+            for (Room room : plan.getRooms()) {
+                writer.write(room);
+            }
+            for (Furniture item : plan.getFurniture()) {
+                writer.write(item);
+            }
+        }
+    }
+
+    public void write(DraggableItem item) throws IOException {
+        if (item instanceof Room) {
+            Room room = (Room) item;
+            out.writeByte(ROOM);
+            writeCommon(room.getName(), room, ArgbColors.toArgb(room.getColor()));
+        } else if (item instanceof Furniture) {
+            Furniture furniture = (Furniture) item;
+            out.writeByte(FURNITURE);
+            writeCommon(furniture.getType(), furniture, ArgbColors.toArgb(furniture.getColor()));
+        } else if (item instanceof Structure) {
+            Structure structure = (Structure) item;
+            out.writeByte(STRUCTURE);
+            writeCommon(structure.getName(), structure, ArgbColors.toArgb(structure.getColor()));
+            out.writeBoolean(structure.getStroke() != null);
+            if (structure.getStroke() != null) {
+                out.writeInt(ArgbColors.toArgb(structure.getStroke()));
+            }
+            out.writeFloat((float) structure.getStrokeWidth());
+        } else {
+            throw new IllegalArgumentException("Unsupported item: " + item);
+        }
+    }
+
+    private void writeCommon(String name, DraggableItem item, int argb) throws IOException {
+        writeString(name);
+        out.writeFloat((float) item.getX());
+        out.writeFloat((float) item.getY());
+        out.writeFloat((float) item.getWidth());
+        out.writeFloat((float) item.getHeight());
+        out.writeInt(argb);
+    }
+
+    private void writeString(String value) throws IOException {
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(index);
+        } else {
+            int next = strings.size();
+            strings.put(value, next);
+            writeVarInt(next);
+            out.writeUTF(value);
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.writeByte(END);
+        out.close();
+    }
+}
@@ -0,0 +1,207 @@
+package autohome.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packs rooms into a rectangular area without overlap using the MaxRects
+ * heuristic: the free space is kept as a list of maximal free rectangles, and
+ * each room goes into the one that fits it most tightly. Rooms may be turned
+ * by 90 degrees when that fits better.
+ */
+public class RoomPacker {
+    public enum Heuristic {
+        /** Smallest leftover along the shorter side; the best general choice. */
+        BEST_SHORT_SIDE_FIT,
+        /** Smallest free rectangle that still fits. */
+        BEST_AREA_FIT,
+        /** Lowest, then leftmost position, which keeps rooms in tidy rows. */
+        BOTTOM_LEFT
+    }
+
+    public static final class Result {
+        private final List<Room> placed;
+        private final List<RoomSpec> unplaced;
+
+        private Result(List<Room> placed, List<RoomSpec> unplaced) {
+            this.placed = placed;
+            this.unplaced = unplaced;
+        }
+
+        public List<Room> getPlaced() { return placed; }
+        public List<RoomSpec> getUnplaced() { return unplaced; }
+
+        public double getPlacedArea() {
+            double area = 0;
+            for (Room room : placed) {
+                area += room.getWidth() * room.getHeight();
+            }
+            return area;
+        }
+    }
+
+    private static final class Rect {
+        final double x, y, width, height;
+
+        Rect(double x, double y, double width, double height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean contains(Rect other) {
+            return other.x >= x && other.y >= y &&
+                    other.x + other.width <= x + width &&
+                    other.y + other.height <= y + height;
+        }
+
+        boolean intersects(double ox, double oy, double ow, double oh) {
+            return ox < x + width && ox + ow > x && oy < y + height && oy + oh > y;
+        }
+    }
+
+    private final double x;
+    private final double y;
+    private final double width;
+    private final double height;
+    private boolean allowRotation = true;
+
+    private final List<Rect> free = new ArrayList<>();
+    private final List<Rect> split = new ArrayList<>();
+
+    // Best candidate of the current search
+    private Rect bestRect;
+    private boolean bestRotated;
+    private double bestScore1, bestScore2;
+
+    public RoomPacker(double x, double y, double width, double height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setAllowRotation(boolean allowRotation) {
+        this.allowRotation = allowRotation;
+    }
+
+    /** Packs the largest rooms first with {@link Heuristic#BEST_SHORT_SIDE_FIT}. */
+    public Result pack(List<RoomSpec> rooms) {
+        List<RoomSpec> order = new ArrayList<>(rooms);
+        order.sort(Comparator.comparingDouble(RoomSpec::getArea).reversed());
+        return pack(order, Heuristic.BEST_SHORT_SIDE_FIT);
+    }
+
+    /** Packs the rooms in the given order; rooms that no longer fit are reported as unplaced. */
+    public Result pack(List<RoomSpec> rooms, Heuristic heuristic) {
+        free.clear();
+        free.add(new Rect(x, y, width, height));
+
+        List<Room> placed = new ArrayList<>(rooms.size());
+        List<RoomSpec> unplaced = new ArrayList<>();
+        for (RoomSpec spec : rooms) {
+            if (findPosition(spec, heuristic)) {
+                Room room = spec.place(bestRect.x, bestRect.y, bestRotated);
+                placed.add(room);
+                occupy(room.getX(), room.getY(), room.getWidth(), room.getHeight());
+            } else {
+                unplaced.add(spec);
+            }
+        }
+        return new Result(placed, unplaced);
+    }
+
+    private boolean findPosition(RoomSpec spec, Heuristic heuristic) {
+        bestRect = null;
+        bestScore1 = Double.MAX_VALUE;
+        bestScore2 = Double.MAX_VALUE;
+        for (Rect rect : free) {
+            consider(rect, spec.getWidth(), spec.getHeight(), false, heuristic);
+            if (allowRotation && spec.getWidth() != spec.getHeight()) {
+                consider(rect, spec.getHeight(), spec.getWidth(), true, heuristic);
+            }
+        }
+        return bestRect != null;
+    }
+
+    private void consider(Rect rect, double w, double h, boolean rotated, Heuristic heuristic) {
+        if (w > rect.width || h > rect.height) return;
+
+        double score1, score2;
+        switch (heuristic) {
+            case BEST_AREA_FIT:
+                score1 = rect.width * rect.height - w * h;
+                score2 = Math.min(rect.width - w, rect.height - h);
+                break;
+            case BOTTOM_LEFT:
+                score1 = rect.y + h;
+                score2 = rect.x;
+                break;
+            default:
+                double leftoverX = rect.width - w;
+                double leftoverY = rect.height - h;
+                score1 = Math.min(leftoverX, leftoverY);
+                score2 = Math.max(leftoverX, leftoverY);
+        }
+
+        if (score1 < bestScore1 || (score1 == bestScore1 && score2 < bestScore2)) {
+            bestRect = new Rect(rect.x, rect.y, w, h);
+            bestRotated = rotated;
+            bestScore1 = score1;
+            bestScore2 = score2;
+        }
+    }
+
+    /** Splits every free rectangle the room overlaps and drops the ones no longer maximal. */
+    private void occupy(double rx, double ry, double rw, double rh) {
+        split.clear();
+        for (int i = free.size() - 1; i >= 0; i--) {
+            Rect rect = free.get(i);
+            if (!rect.intersects(rx, ry, rw, rh)) continue;
+
+            free.set(i, free.get(free.size() - 1));
+            free.remove(free.size() - 1);
+            if (rx > rect.x) {
+                split.add(new Rect(rect.x, rect.y, rx - rect.x, rect.height));
+            }
+            if (rx + rw < rect.x + rect.width) {
+                split.add(new Rect(rx + rw, rect.y, rect.x + rect.width - rx - rw, rect.height));
+            }
+            if (ry > rect.y) {
+                split.add(new Rect(rect.x, rect.y, rect.width, ry - rect.y));
+            }
+            if (ry + rh < rect.y + rect.height) {
+                split.add(new Rect(rect.x, ry + rh, rect.width, rect.y + rect.height - ry - rh));
+            }
+        }
+
+        // Only the new pieces can be redundant, so compare them against everything else
+        for (int i = 0; i < split.size(); i++) {
+            Rect rect = split.get(i);
+            boolean redundant = false;
+            for (Rect other : free) {
+                if (other.contains(rect)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            for (int j = 0; j < split.size() && !redundant; j++) {
+                Rect other = split.get(j);
+                if (j != i && other.contains(rect) && (!rect.contains(other) || j < i)) {
+                    redundant = true;
+                }
+            }
+            if (redundant) continue;
+
+            for (int j = free.size() - 1; j >= 0; j--) {
+                if (rect.contains(free.get(j))) {
+                    free.set(j, free.get(free.size() - 1));
+                    free.remove(free.size() - 1);
+                }
+            }
+            free.add(rect);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package autohome.model;
+
+import javafx.scene.paint.Color;
+
+/** A room the house should contain, before it has a position. */
+public class RoomSpec {
+    private final String name;
+    private final double width;
+    private final double height;
+    private final Color color;
+
+    public RoomSpec(String name, double width, double height, Color color) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.color = color;
+    }
+
+    public String getName() { return name; }
+    public double getWidth() { return width; }
+    public double getHeight() { return height; }
+    public Color getColor() { return color; }
+
+    public double getArea() {
+        return width * height;
+    }
+
+    /** Creates the room at the given position, optionally turned by 90 degrees. */
+    public Room place(double x, double y, boolean rotated) {
+        Room room = rotated
+                ? new Room(name, height, width, color)
+                : new Room(name, width, height, color);
+        room.setPosition(x, y);
+        return room;
+    }
+}
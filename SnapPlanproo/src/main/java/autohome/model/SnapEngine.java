@@ -0,0 +1,284 @@
+package autohome.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Snaps a dragged item to the edges of other items and to a grid.
+ *
+ * The edges of every item on the canvas are kept in sorted arrays, updated as
+ * items are added, moved and removed, so a snap is a binary search plus a
+ * scan of the edges within the tolerance. Only items lying near the dragged
+ * one across the snapping axis count, so a drag does not jump to the edge of
+ * something far away. An edge snap within the tolerance wins over the grid;
+ * either side of the item may snap. Furniture edges only attract furniture.
+ */
+public class SnapEngine {
+    private static final double DEFAULT_TOLERANCE = 6;
+    private static final double DEFAULT_REACH = 48;
+
+    private double gridSize;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private double reach = DEFAULT_REACH;
+    private boolean snapToEdges = true;
+
+    // Vertical edges sorted by x, with each owner's vertical extent, and vice versa
+    private final Edges xEdges = new Edges();
+    private final Edges yEdges = new Edges();
+    // Bounds each item was indexed with: x, x + width, y, y + height
+    private final Map<DraggableItem, double[]> indexed = new IdentityHashMap<>();
+
+    public double getGridSize() {
+        return gridSize;
+    }
+
+    /** Grid spacing in canvas pixels; 0 turns grid snapping off. */
+    public void setGridSize(double gridSize) {
+        this.gridSize = gridSize;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public double getReach() {
+        return reach;
+    }
+
+    /** How far apart two items may be across the snapping axis and still snap to each other's edges. */
+    public void setReach(double reach) {
+        this.reach = reach;
+    }
+
+    public boolean isSnapToEdges() {
+        return snapToEdges;
+    }
+
+    public void setSnapToEdges(boolean snapToEdges) {
+        this.snapToEdges = snapToEdges;
+    }
+
+    public boolean isEnabled() {
+        return snapToEdges || gridSize > 0;
+    }
+
+    /** Forgets every item's edges. */
+    public void clear() {
+        xEdges.clear();
+        yEdges.clear();
+        indexed.clear();
+    }
+
+    public void add(DraggableItem item) {
+        if (indexed.containsKey(item)) {
+            update(item);
+            return;
+        }
+        double[] bounds = bounds(item);
+        indexed.put(item, bounds);
+        xEdges.insert(bounds[0], bounds[2], bounds[3], item);
+        xEdges.insert(bounds[1], bounds[2], bounds[3], item);
+        yEdges.insert(bounds[2], bounds[0], bounds[1], item);
+        yEdges.insert(bounds[3], bounds[0], bounds[1], item);
+    }
+
+    /** Adds many items at once, sorting once instead of inserting each edge. */
+    public void addAll(Collection<? extends DraggableItem> items) {
+        for (DraggableItem item : items) {
+            if (indexed.containsKey(item)) continue;
+            double[] bounds = bounds(item);
+            indexed.put(item, bounds);
+            xEdges.append(bounds[0], bounds[2], bounds[3], item);
+            xEdges.append(bounds[1], bounds[2], bounds[3], item);
+            yEdges.append(bounds[2], bounds[0], bounds[1], item);
+            yEdges.append(bounds[3], bounds[0], bounds[1], item);
+        }
+        xEdges.sort();
+        yEdges.sort();
+    }
+
+    public void remove(DraggableItem item) {
+        double[] bounds = indexed.remove(item);
+        if (bounds == null) return;
+        xEdges.remove(bounds[0], item);
+        xEdges.remove(bounds[1], item);
+        yEdges.remove(bounds[2], item);
+        yEdges.remove(bounds[3], item);
+    }
+
+    /** Re-files an item's edges after it moved. */
+    public void update(DraggableItem item) {
+        double[] bounds = indexed.get(item);
+        if (bounds == null) return;
+        if (Arrays.equals(bounds, bounds(item))) return;
+        remove(item);
+        add(item);
+    }
+
+    /** Snaps the left or right side of {@code item}, were it at (x, y), to a nearby vertical edge. */
+    public double snapX(DraggableItem item, double x, double y) {
+        return snap(xEdges, item, x, item.getWidth(), y, item.getHeight());
+    }
+
+    /** Snaps the top or bottom side of {@code item}, were it at (x, y), to a nearby horizontal edge. */
+    public double snapY(DraggableItem item, double x, double y) {
+        return snap(yEdges, item, y, item.getHeight(), x, item.getWidth());
+    }
+
+    private double snap(Edges edges, DraggableItem item, double start, double size, double across, double acrossSize) {
+        if (snapToEdges) {
+            double low = across - reach;
+            double high = across + acrossSize + reach;
+            double shift = Double.NaN;
+            double nearStart = edges.nearest(start, tolerance, item, low, high);
+            if (!Double.isNaN(nearStart)) {
+                shift = nearStart - start;
+            }
+            double end = start + size;
+            double nearEnd = edges.nearest(end, tolerance, item, low, high);
+            if (!Double.isNaN(nearEnd) && (Double.isNaN(shift) || Math.abs(nearEnd - end) < Math.abs(shift))) {
+                shift = nearEnd - end;
+            }
+            if (!Double.isNaN(shift)) {
+                return start + shift;
+            }
+        }
+        if (gridSize > 0) {
+            return Math.round(start / gridSize) * gridSize;
+        }
+        return start;
+    }
+
+    private static double[] bounds(DraggableItem item) {
+        return new double[]{
+                item.getX(), item.getX() + item.getWidth(),
+                item.getY(), item.getY() + item.getHeight()
+        };
+    }
+
+    /** Edge positions along one axis, sorted, with the extent of each edge's owner across that axis. */
+    private static final class Edges {
+        private double[] values = new double[64];
+        private double[] lows = new double[64];
+        private double[] highs = new double[64];
+        private DraggableItem[] owners = new DraggableItem[64];
+        private int count;
+
+        void clear() {
+            Arrays.fill(owners, 0, count, null);
+            count = 0;
+        }
+
+        void append(double value, double low, double high, DraggableItem owner) {
+            ensureCapacity(count + 1);
+            set(count++, value, low, high, owner);
+        }
+
+        void insert(double value, double low, double high, DraggableItem owner) {
+            ensureCapacity(count + 1);
+            int i = lowerBound(value);
+            shift(i, i + 1, count - i);
+            count++;
+            set(i, value, low, high, owner);
+        }
+
+        void remove(double value, DraggableItem owner) {
+            for (int i = lowerBound(value); i < count && values[i] == value; i++) {
+                if (owners[i] == owner) {
+                    shift(i + 1, i, count - i - 1);
+                    owners[--count] = null;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the edge closest to {@code value}, within the tolerance, whose
+         * owner reaches into [low, high] and may attract {@code item}; NaN if none.
+         */
+        double nearest(double value, double tolerance, DraggableItem item, double low, double high) {
+            boolean furniture = item instanceof Furniture;
+            double best = Double.NaN;
+            for (int i = lowerBound(value - tolerance); i < count && values[i] <= value + tolerance; i++) {
+                DraggableItem owner = owners[i];
+                if (owner == item || highs[i] < low || lows[i] > high ||
+                        (!furniture && owner instanceof Furniture)) {
+                    continue;
+                }
+                if (Double.isNaN(best) || Math.abs(values[i] - value) < Math.abs(best - value)) {
+                    best = values[i];
+                }
+            }
+            return best;
+        }
+
+        void sort() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            double[] sortValues = values;
+            Arrays.sort(order, Comparator.comparingDouble(i -> sortValues[i]));
+
+            double[] sortedValues = new double[values.length];
+            double[] sortedLows = new double[values.length];
+            double[] sortedHighs = new double[values.length];
+            DraggableItem[] sortedOwners = new DraggableItem[values.length];
+            for (int k = 0; k < count; k++) {
+                int i = order[k];
+                sortedValues[k] = values[i];
+                sortedLows[k] = lows[i];
+                sortedHighs[k] = highs[i];
+                sortedOwners[k] = owners[i];
+            }
+            values = sortedValues;
+            lows = sortedLows;
+            highs = sortedHighs;
+            owners = sortedOwners;
+        }
+
+        private int lowerBound(double value) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void set(int i, double value, double low, double high, DraggableItem owner) {
+            values[i] = value;
+            lows[i] = low;
+            highs[i] = high;
+            owners[i] = owner;
+        }
+
+        private void shift(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+            System.arraycopy(lows, from, lows, to, length);
+            System.arraycopy(highs, from, highs, to, length);
+            System.arraycopy(owners, from, owners, to, length);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= values.length) return;
+            int length = Math.max(capacity, values.length * 2);
+            values = Arrays.copyOf(values, length);
+            lows = Arrays.copyOf(lows, length);
+            highs = Arrays.copyOf(highs, length);
+            owners = Arrays.copyOf(owners, length);
+        }
+    }
+}
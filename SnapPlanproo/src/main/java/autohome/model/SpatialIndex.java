@@ -0,0 +1,192 @@
+package autohome.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over item bounds. Every item is registered in each cell its
+ * bounds overlap, so point and region lookups only visit nearby items.
+ * Items also carry a stacking order (last inserted or raised is on top),
+ * which lets hit-tests resolve the topmost item without the owning list.
+ */
+public class SpatialIndex<T extends DraggableItem> {
+    private static final double DEFAULT_CELL_SIZE = 64;
+
+    private final double cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+    private final Map<T, Entry> entries = new IdentityHashMap<>();
+    private long nextOrder;
+    private int queryStamp;
+
+    private static final class Entry {
+        int minCol, minRow, maxCol, maxRow;
+        long order;
+        int stamp;
+    }
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void insert(T item) {
+        Entry entry = new Entry();
+        entry.order = nextOrder++;
+        entries.put(item, entry);
+        register(item, entry);
+    }
+
+    public void remove(T item) {
+        Entry entry = entries.remove(item);
+        if (entry != null) {
+            unregister(item, entry);
+        }
+    }
+
+    /** Re-files an item after its position changed. */
+    public void update(T item) {
+        Entry entry = entries.get(item);
+        if (entry == null) return;
+
+        int minCol = col(item.getX());
+        int minRow = row(item.getY());
+        int maxCol = col(item.getX() + item.getWidth());
+        int maxRow = row(item.getY() + item.getHeight());
+        if (minCol == entry.minCol && minRow == entry.minRow &&
+                maxCol == entry.maxCol && maxRow == entry.maxRow) {
+            return;
+        }
+
+        unregister(item, entry);
+        register(item, entry);
+    }
+
+    /** Moves an item to the top of the stacking order. */
+    public void raise(T item) {
+        Entry entry = entries.get(item);
+        if (entry != null) {
+            entry.order = nextOrder++;
+        }
+    }
+
+    /** Renumbers the stacking order to follow the given paint order, bottom-most first. */
+    public void reorder(List<T> paintOrder) {
+        for (T item : paintOrder) {
+            Entry entry = entries.get(item);
+            if (entry != null) {
+                entry.order = nextOrder++;
+            }
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Returns the topmost item whose bounds contain the point, or null. */
+    public T topmostAt(double x, double y) {
+        List<T> cell = cells.get(key(col(x), row(y)));
+        if (cell == null) return null;
+
+        T best = null;
+        long bestOrder = Long.MIN_VALUE;
+        for (T item : cell) {
+            if (contains(item, x, y)) {
+                long order = entries.get(item).order;
+                if (order > bestOrder) {
+                    best = item;
+                    bestOrder = order;
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Returns the items intersecting the region, bottom-most first. */
+    public List<T> query(double x, double y, double width, double height) {
+        List<T> result = new ArrayList<>();
+        int stamp = ++queryStamp;
+        int minCol = col(x);
+        int maxCol = col(x + width);
+        int minRow = row(y);
+        int maxRow = row(y + height);
+
+        for (int c = minCol; c <= maxCol; c++) {
+            for (int r = minRow; r <= maxRow; r++) {
+                List<T> cell = cells.get(key(c, r));
+                if (cell == null) continue;
+                for (T item : cell) {
+                    Entry entry = entries.get(item);
+                    if (entry.stamp != stamp && intersects(item, x, y, width, height)) {
+                        entry.stamp = stamp;
+                        result.add(item);
+                    }
+                }
+            }
+        }
+
+        result.sort(Comparator.comparingLong(item -> entries.get(item).order));
+        return result;
+    }
+
+    private void register(T item, Entry entry) {
+        entry.minCol = col(item.getX());
+        entry.minRow = row(item.getY());
+        entry.maxCol = col(item.getX() + item.getWidth());
+        entry.maxRow = row(item.getY() + item.getHeight());
+
+        for (int c = entry.minCol; c <= entry.maxCol; c++) {
+            for (int r = entry.minRow; r <= entry.maxRow; r++) {
+                cells.computeIfAbsent(key(c, r), k -> new ArrayList<>()).add(item);
+            }
+        }
+    }
+
+    private void unregister(T item, Entry entry) {
+        for (int c = entry.minCol; c <= entry.maxCol; c++) {
+            for (int r = entry.minRow; r <= entry.maxRow; r++) {
+                long key = key(c, r);
+                List<T> cell = cells.get(key);
+                if (cell == null) continue;
+                cell.remove(item);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    private int col(double x) {
+        return (int) Math.floor(x / cellSize);
+    }
+
+    private int row(double y) {
+        return (int) Math.floor(y / cellSize);
+    }
+
+    private static long key(int col, int row) {
+        return ((long) col << 32) | (row & 0xffffffffL);
+    }
+
+    private static boolean contains(DraggableItem item, double x, double y) {
+        return x >= item.getX() && x <= item.getX() + item.getWidth() &&
+                y >= item.getY() && y <= item.getY() + item.getHeight();
+    }
+
+    private static boolean intersects(DraggableItem item, double x, double y, double width, double height) {
+        return item.getX() <= x + width && item.getX() + item.getWidth() >= x &&
+                item.getY() <= y + height && item.getY() + item.getHeight() >= y;
+    }
+}
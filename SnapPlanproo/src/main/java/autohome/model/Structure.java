@@ -6,6 +6,7 @@ public class Structure implements DraggableItem {
     private final String name;
     private double x;
     private double y;
+    private int version;
     private final double width;
     private final double height;
     private Color color = Color.TRANSPARENT;
@@ -30,21 +31,28 @@ public class Structure implements DraggableItem {
     public Color getStroke() { return stroke; }
     public double getStrokeWidth() { return strokeWidth; }
 
+    @Override public Kind getKind() { return Kind.STRUCTURE; }
+    @Override public int getVersion() { return version; }
+
     @Override
     public void setPosition(double x, double y) {
         this.x = x;
         this.y = y;
+        version++;
     }
 
     public void setColor(Color color) {
         this.color = color;
+        version++;
     }
 
     public void setStroke(Color stroke) {
         this.stroke = stroke;
+        version++;
     }
 
     public void setStrokeWidth(double strokeWidth) {
         this.strokeWidth = strokeWidth;
+        version++;
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package autohome.model;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders a plan at any scale through one small offscreen canvas, a band of
+ * tiles at a time. Only one tile and one band of pixels are ever held, so the
+ * output size is not limited by memory or texture size. Use on the FX thread.
+ */
+public class TileRenderer {
+    private final BlueprintRenderer renderer = new BlueprintRenderer(Font.getDefault());
+    private final SpatialIndex<DraggableItem> index = new SpatialIndex<>();
+    private final double scale;
+    private final int outputWidth;
+    private final int outputHeight;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final Canvas canvas;
+    private final WritableImage tile;
+    private final SnapshotParameters parameters = new SnapshotParameters();
+    private final WritablePixelFormat<IntBuffer> format = PixelFormat.getIntArgbInstance();
+    private double labelOverflowX, labelOverflowY;
+
+    public TileRenderer(Plan plan, double scale, int tileWidth, int tileHeight) {
+        this.scale = scale;
+        this.outputWidth = Math.max(1, (int) Math.ceil(plan.getWidth() * scale));
+        this.outputHeight = Math.max(1, (int) Math.ceil(plan.getHeight() * scale));
+        this.tileWidth = Math.min(tileWidth, outputWidth);
+        this.tileHeight = Math.min(tileHeight, outputHeight);
+        this.canvas = new Canvas(this.tileWidth, this.tileHeight);
+        this.tile = new WritableImage(this.tileWidth, this.tileHeight);
+        parameters.setFill(Color.WHITE);
+
+        List<DraggableItem> items = new ArrayList<>(plan.size());
+        items.addAll(plan.getStructures());
+        items.addAll(plan.getRooms());
+        items.addAll(plan.getFurniture());
+        for (DraggableItem item : items) {
+            index.insert(item);
+            labelOverflowX = Math.max(labelOverflowX, 5 + renderer.labelWidth(item) - item.getWidth());
+            labelOverflowY = Math.max(labelOverflowY, BlueprintRenderer.LABEL_BOTTOM - item.getHeight());
+        }
+    }
+
+    public int getOutputWidth() {
+        return outputWidth;
+    }
+
+    public int getOutputHeight() {
+        return outputHeight;
+    }
+
+    /** Rows rendered per band; a band buffer needs {@code outputWidth * bandHeight} pixels. */
+    public int getBandHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Renders the band of output rows starting at {@code y} into {@code band}
+     * as ARGB with a stride of {@code outputWidth}; returns the row count.
+     */
+    public int renderBand(int y, int[] band) {
+        int rows = Math.min(tileHeight, outputHeight - y);
+        for (int x = 0; x < outputWidth; x += tileWidth) {
+            renderTile(x, y);
+            int width = Math.min(tileWidth, outputWidth - x);
+            tile.getPixelReader().getPixels(0, 0, width, rows, format, band, x, outputWidth);
+        }
+        return rows;
+    }
+
+    private void renderTile(int x, int y) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setTransform(1, 0, 0, 1, 0, 0);
+        gc.clearRect(0, 0, tileWidth, tileHeight);
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, tileWidth, tileHeight);
+
+        gc.save();
+        gc.scale(scale, scale);
+        gc.translate(-x / scale, -y / scale);
+
+        double padding = BlueprintRenderer.STROKE_PADDING;
+        double minX = x / scale - labelOverflowX - padding;
+        double minY = y / scale - labelOverflowY - padding;
+        double width = tileWidth / scale + labelOverflowX + 2 * padding;
+        double height = tileHeight / scale + labelOverflowY + 2 * padding;
+        for (DraggableItem item : index.query(minX, minY, width, height)) {
+            renderer.drawItem(gc, item);
+        }
+        gc.restore();
+
+        canvas.snapshot(parameters, tile);
+    }
+}
@@ -0,0 +1,317 @@
+package autohome.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Many plans in one memory-mapped file. Plans are appended as blocks of
+ * fixed-size records and located through an index of plan IDs stored at the
+ * end of the file, so opening a plan maps its block without reading it.
+ *
+ * <pre>
+ * header: int magic 'SNWS', int version, long index offset, int plan count
+ * block:  int record count, int string count, float canvas width, float canvas height,
+ *         strings (int length + UTF-8), padding to 8, records
+ * index:  per plan: int id length + UTF-8 id, long block offset, long block length
+ * </pre>
+ *
+ * Saving a plan appends its block after the current index, then a new index
+ * after the block, and only then points the header at the new index. Until
+ * that last write the header still points at the old index, so a crash
+ * mid-save loses at most the plan being saved.
+ *
+ * Replaced blocks and old indexes are left behind as dead bytes. Once they
+ * pass {@link #COMPACT_MIN_DEAD_BYTES} and outweigh the live data, a save
+ * runs {@link #compact}, which copies the live blocks and a new index into a
+ * temporary file and atomically moves it over the workspace. Not thread-safe.
+ */
+public class WorkspaceStore implements Closeable {
+    private static final int MAGIC = 0x534E5753;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    public static final long COMPACT_MIN_DEAD_BYTES = 32L * 1024 * 1024;
+
+    private final Path file;
+    private FileChannel channel;
+    private final Map<String, long[]> index = new LinkedHashMap<>();
+    private long indexEnd;
+    private long indexSize;
+    private long liveBlockBytes;
+
+    private WorkspaceStore(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /** Opens the workspace file, creating an empty one if it does not exist. */
+    public static WorkspaceStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        WorkspaceStore store = new WorkspaceStore(file, channel);
+        try {
+            if (channel.size() == 0) {
+                store.writeIndex(store.index, HEADER_SIZE);
+            } else {
+                store.readIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    public Set<String> getPlanIds() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /** Maps the plan's block; records are decoded only when accessed. */
+    public MappedPlan openPlan(String id) throws IOException {
+        long[] location = index.get(id);
+        if (location == null) {
+            throw new IOException("No plan named " + id);
+        }
+        MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, location[0], location[1]);
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        return new MappedPlan(block);
+    }
+
+    public void savePlan(String id, Plan plan) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndex = new LinkedHashMap<>();
+        int records = plan.size();
+        int stringBytes = 0;
+        for (DraggableItem item : items(plan)) {
+            String name = MappedPlan.nameOf(item);
+            if (!stringIndex.containsKey(name)) {
+                stringIndex.put(name, strings.size());
+                strings.add(name);
+                stringBytes += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        int recordsOffset = align(MappedPlan.BLOCK_HEADER_SIZE + stringBytes);
+        long blockLength = recordsOffset + (long) records * MappedPlan.RECORD_SIZE;
+        if (blockLength > Integer.MAX_VALUE) {
+            throw new IOException("Plan too large for a single block");
+        }
+
+        ByteBuffer block = ByteBuffer.allocate((int) blockLength).order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(records);
+        block.putInt(strings.size());
+        block.putFloat((float) plan.getWidth());
+        block.putFloat((float) plan.getHeight());
+        block.putInt(recordsOffset);
+        for (String name : strings) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            block.putInt(bytes.length);
+            block.put(bytes);
+        }
+        block.position(recordsOffset);
+        for (DraggableItem item : items(plan)) {
+            MappedPlan.putRecord(block, item, stringIndex.get(MappedPlan.nameOf(item)));
+        }
+        block.flip();
+
+        long blockOffset = indexEnd;
+        writeFully(channel, block, blockOffset);
+        Map<String, long[]> updated = new LinkedHashMap<>(index);
+        long[] replaced = updated.put(id, new long[]{blockOffset, blockLength});
+        writeIndex(updated, blockOffset + blockLength);
+        index.put(id, updated.get(id));
+        liveBlockBytes += blockLength - (replaced != null ? replaced[1] : 0);
+
+        long dead = getDeadBytes();
+        if (dead >= COMPACT_MIN_DEAD_BYTES && dead > liveBlockBytes) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The plan is saved; the space is reclaimed by a later save
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Bytes taken up by replaced blocks, old indexes and interrupted saves. */
+    public long getDeadBytes() {
+        return indexEnd - HEADER_SIZE - liveBlockBytes - indexSize;
+    }
+
+    /**
+     * Rewrites the workspace without its dead bytes: copies the live blocks and
+     * a new index into a temporary file next to it, forces that to disk and
+     * atomically moves it over the workspace. If anything fails the workspace
+     * is left as it was. Plans opened before compacting stay readable on
+     * platforms that allow replacing a mapped file; elsewhere the move fails
+     * while they are still mapped.
+     */
+    public void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        Map<String, long[]> moved = new LinkedHashMap<>();
+        long end;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE;
+            for (Map.Entry<String, long[]> entry : index.entrySet()) {
+                long[] location = entry.getValue();
+                transferFully(location[0], location[1], out, position);
+                moved.put(entry.getKey(), new long[]{position, location[1]});
+                position += location[1];
+            }
+            end = position + writeIndex(out, moved, position);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            throw e;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        index.putAll(moved);
+        indexSize = indexSize(moved);
+        indexEnd = end;
+    }
+
+    private void transferFully(long position, long count, FileChannel target, long targetPosition)
+            throws IOException {
+        target.position(targetPosition);
+        while (count > 0) {
+            long sent = channel.transferTo(position, count, target);
+            if (sent <= 0) throw new IOException("Truncated workspace file");
+            position += sent;
+            count -= sent;
+        }
+    }
+
+    private static List<DraggableItem> items(Plan plan) {
+        List<DraggableItem> items = new ArrayList<>(plan.size());
+        items.addAll(plan.getStructures());
+        items.addAll(plan.getRooms());
+        items.addAll(plan.getFurniture());
+        return items;
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a workspace file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported workspace version " + version);
+        }
+        long indexOffset = header.getLong();
+        int planCount = header.getInt();
+        if (indexOffset < HEADER_SIZE || indexOffset > channel.size()) {
+            throw new IOException("Corrupt workspace index offset " + indexOffset);
+        }
+
+        MappedByteBuffer indexBuffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                indexOffset, channel.size() - indexOffset);
+        indexBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < planCount; i++) {
+            byte[] id = new byte[indexBuffer.getInt()];
+            indexBuffer.get(id);
+            long offset = indexBuffer.getLong();
+            long length = indexBuffer.getLong();
+            index.put(new String(id, StandardCharsets.UTF_8), new long[]{offset, length});
+            liveBlockBytes += length;
+        }
+        // Anything past the index is an interrupted save; the next save overwrites it
+        indexSize = indexBuffer.position();
+        indexEnd = indexOffset + indexSize;
+    }
+
+    private void writeIndex(Map<String, long[]> entries, long offset) throws IOException {
+        indexSize = writeIndex(channel, entries, offset);
+        indexEnd = offset + indexSize;
+    }
+
+    private static int indexSize(Map<String, long[]> entries) {
+        int size = 0;
+        for (String id : entries.keySet()) {
+            size += 4 + id.getBytes(StandardCharsets.UTF_8).length + 16;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the index at {@code offset} and forces it to disk, then points the
+     * header at it and forces again, so the header never refers to an index
+     * that is not fully written. Returns the size of the index.
+     */
+    private static int writeIndex(FileChannel channel, Map<String, long[]> entries, long offset)
+            throws IOException {
+        int size = indexSize(entries);
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+            byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(id.length);
+            buffer.put(id);
+            buffer.putLong(entry.getValue()[0]);
+            buffer.putLong(entry.getValue()[1]);
+        }
+        buffer.flip();
+        writeFully(channel, buffer, offset);
+        channel.truncate(offset + size);
+        channel.force(false);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(offset);
+        header.putInt(entries.size());
+        header.position(HEADER_SIZE);
+        header.flip();
+        writeFully(channel, header, 0);
+        channel.force(false);
+        return size;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Truncated workspace file");
+            position += read;
+        }
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}